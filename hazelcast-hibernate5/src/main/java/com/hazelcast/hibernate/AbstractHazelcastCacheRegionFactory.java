@@ -42,6 +42,7 @@ public abstract class AbstractHazelcastCacheRegionFactory implements RegionFacto
     private final ILogger log = Logger.getLogger(getClass());
 
     private IHazelcastInstanceLoader instanceLoader;
+    private CachedClusterClock clock;
 
 
     public AbstractHazelcastCacheRegionFactory() {
@@ -96,18 +97,34 @@ public abstract class AbstractHazelcastCacheRegionFactory implements RegionFacto
             }
             instance = instanceLoader.loadInstance();
         }
-        cleanupService = new CleanupService(instance.getName());
+        cleanupService = new CleanupService(instance.getName(), CleanupService.DEFAULT_FIXED_DELAY,
+                CacheEnvironment.getInvalidationBatchWindowInMillis(properties));
+        final int clusterTimeRefreshInterval = CacheEnvironment.getClusterTimeRefreshIntervalInMillis(properties);
+        if (clusterTimeRefreshInterval > 0) {
+            // Only one clock per instance is used; another factory on the same instance may have registered one
+            final CachedClusterClock candidate = new CachedClusterClock(instance, clusterTimeRefreshInterval);
+            if (HazelcastTimestamper.registerTimestampSource(instance, candidate)) {
+                candidate.start();
+                clock = candidate;
+            }
+        }
     }
 
     @Override
     public void stop() {
+        // Stop first, so the invalidations still collected are published before the instance is unloaded
+        cleanupService.stop();
+        if (clock != null) {
+            HazelcastTimestamper.deregisterTimestampSource(instance, clock);
+            clock.stop();
+            clock = null;
+        }
         if (instanceLoader != null) {
             log.info("Shutting down " + getClass().getSimpleName());
             instanceLoader.unloadInstance();
             instance = null;
             instanceLoader = null;
         }
-        cleanupService.stop();
     }
 
     public HazelcastInstance getHazelcastInstance() {
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Optionally implemented by a {@link RegionCache} which reads several keys cheaper at once than one by one.
+ * <p/>
+ * This is an experimental extension: Hibernate itself never reads a region in bulk, so nothing in this library calls
+ * it. It is meant for code holding a region cache, such as a batch loader, and reads the cached objects as stored,
+ * without resolving them for a session.
+ */
+public interface BulkReadRegionCache {
+
+    /**
+     * Reads the entries of several keys at once, which a distributed cache does with one call per member.
+     *
+     * @param keys        the keys to read
+     * @param txTimestamp a timestamp prior to the transaction start time
+     * @return the cached objects by their keys; keys without a readable cached object are missing
+     */
+    Map<Object, Object> getAll(final Collection<?> keys, final long txTimestamp);
+}
@@ -86,6 +86,69 @@ public final class CacheEnvironment {
      */
     public static final String EXPLICIT_VERSION_CHECK = "hibernate.cache.hazelcast.explicit_version_check";
 
+    /**
+     * Property to configure the time in milliseconds invalidations of a local region are collected before they are
+     * published as one batch. Invalidations are published immediately by default.
+     * <p/>
+     * A batch is published early when a read-write transaction completes its update or unlock. Other invalidations,
+     * such as evictions and the removals of nonstrict read-write regions, wait for up to the window, which adds to the
+     * time other members may read stale entries.
+     */
+    public static final String INVALIDATION_BATCH_WINDOW = "hibernate.cache.hazelcast.invalidation_batch_window";
+
+    /**
+     * Property to configure whether invalidations of local regions are published over a reliable topic, so that
+     * a member clears a region when it detects it missed any of its invalidations.
+     */
+    public static final String RELIABLE_INVALIDATION = "hibernate.cache.hazelcast.reliable_invalidation";
+
+    /**
+     * Property to configure the time in milliseconds between two requests of the cluster time, which timestamps
+     * are derived from in between. The cluster time is requested for each timestamp by default.
+     */
+    public static final String CLUSTER_TIME_REFRESH_INTERVAL = "hibernate.cache.hazelcast.cluster_time_refresh_interval";
+
+    /**
+     * Property to configure the maximum number of puts of values loaded from the database which a distributed
+     * region leaves in flight, instead of waiting for them to complete. Further puts are dropped while that many
+     * are in flight. Such puts are waited for by default.
+     */
+    public static final String ASYNC_PUT_FROM_LOAD_WINDOW = "hibernate.cache.hazelcast.async_put_from_load_window";
+
+    /**
+     * Property to configure the maximum number of entries of a distributed region which are kept as near copies on
+     * each member, so that reading them does not need a remote call. Only regions accessed read-only or nonstrict
+     * read-write keep near copies, and distributed regions have none by default.
+     */
+    public static final String NEAR_CACHE_MAX_SIZE = "hibernate.cache.hazelcast.near_cache_max_size";
+
+    /**
+     * Property to configure the time in milliseconds a near copy of an entry of a distributed region is kept for.
+     * It bounds how long a copy may be read after an invalidation of it was lost. Defaults to one minute.
+     */
+    public static final String NEAR_CACHE_TIME_TO_LIVE = "hibernate.cache.hazelcast.near_cache_time_to_live";
+
+    /**
+     * Property to configure the time in milliseconds the statistics of a distributed region collected from the
+     * members are kept for. They are collected each time they are read by default. When set, the element count of
+     * a distributed region is taken from these statistics as well rather than counted exactly.
+     */
+    public static final String STATISTICS_REFRESH_INTERVAL = "hibernate.cache.hazelcast.statistics_refresh_interval";
+
+    /**
+     * Property to configure whether the cache keys of entities and collections are partitioned by the identifier
+     * of their owner, so that an entity and its collections are stored in the same partition of a distributed
+     * region. Keys are partitioned by their whole content by default.
+     */
+    public static final String PARTITION_BY_OWNER = "hibernate.cache.hazelcast.partition_by_owner";
+
+    /**
+     * Property to configure the size in bytes above which the serialized values of a distributed region are
+     * compressed. The threshold of a single region is configured by appending a dot and its name to this property,
+     * which takes precedence. Values are not compressed by default.
+     */
+    public static final String COMPRESSION_THRESHOLD = "hibernate.cache.hazelcast.compression_threshold";
+
     /**
      * Property to configure the Hazelcast operation timeout
      */
@@ -109,6 +172,9 @@ public final class CacheEnvironment {
     // one hour in milliseconds
     private static final int DEFAULT_CACHE_TIMEOUT = (3600 * 1000);
 
+    // one minute in milliseconds
+    private static final int DEFAULT_NEAR_CACHE_TIME_TO_LIVE = (60 * 1000);
+
     private CacheEnvironment() {
     }
 
@@ -152,4 +218,41 @@ public final class CacheEnvironment {
     public static boolean isExplicitVersionCheckEnabled(final Properties props) {
         return ConfigurationHelper.getBoolean(CacheEnvironment.EXPLICIT_VERSION_CHECK, props, false);
     }
+
+    public static int getInvalidationBatchWindowInMillis(final Properties props) {
+        return Math.max(0, ConfigurationHelper.getInt(INVALIDATION_BATCH_WINDOW, props, 0));
+    }
+
+    public static int getClusterTimeRefreshIntervalInMillis(final Properties props) {
+        return Math.max(0, ConfigurationHelper.getInt(CLUSTER_TIME_REFRESH_INTERVAL, props, 0));
+    }
+
+    public static int getAsyncPutFromLoadWindow(final Properties props) {
+        return Math.max(0, ConfigurationHelper.getInt(ASYNC_PUT_FROM_LOAD_WINDOW, props, 0));
+    }
+
+    public static int getNearCacheMaxSize(final Properties props) {
+        return Math.max(0, ConfigurationHelper.getInt(NEAR_CACHE_MAX_SIZE, props, 0));
+    }
+
+    public static int getNearCacheTimeToLiveInMillis(final Properties props) {
+        return Math.max(1, ConfigurationHelper.getInt(NEAR_CACHE_TIME_TO_LIVE, props, DEFAULT_NEAR_CACHE_TIME_TO_LIVE));
+    }
+
+    public static int getStatisticsRefreshIntervalInMillis(final Properties props) {
+        return Math.max(0, ConfigurationHelper.getInt(STATISTICS_REFRESH_INTERVAL, props, 0));
+    }
+
+    public static boolean isReliableInvalidationEnabled(final Properties props) {
+        return ConfigurationHelper.getBoolean(CacheEnvironment.RELIABLE_INVALIDATION, props, false);
+    }
+
+    public static boolean isPartitionByOwnerEnabled(final Properties props) {
+        return ConfigurationHelper.getBoolean(CacheEnvironment.PARTITION_BY_OWNER, props, false);
+    }
+
+    public static int getCompressionThreshold(final Properties props, final String regionName) {
+        final int threshold = ConfigurationHelper.getInt(COMPRESSION_THRESHOLD, props, 0);
+        return Math.max(0, ConfigurationHelper.getInt(COMPRESSION_THRESHOLD + '.' + regionName, props, threshold));
+    }
 }
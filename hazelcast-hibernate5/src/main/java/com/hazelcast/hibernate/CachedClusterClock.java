@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.hibernate;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.logging.Logger;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link TimestampSource} which asks the cluster for its time in the background only.
+ * <p/>
+ * Each refresh samples the cluster time together with {@link System#nanoTime()}, and timestamps are derived from
+ * the latest sample and the time elapsed since. Changes to the local wall clock therefore do not affect them.
+ * A timestamp differs from the cluster time by at most the time taken to sample it plus the drift of the local
+ * clock within two refresh intervals: a sample older than that is not used, the cluster is asked right away instead.
+ */
+final class CachedClusterClock implements TimestampSource {
+
+    private static final int MAX_SAMPLE_AGE_IN_INTERVALS = 2;
+
+    private final HazelcastInstance instance;
+    private final long refreshInterval;
+    private final long maxSampleAgeNanos;
+    private final ScheduledExecutorService executor;
+    private volatile Sample sample;
+
+    /**
+     * @param instance        the instance to ask for the cluster time
+     * @param refreshInterval the time in milliseconds between two refreshes
+     */
+    CachedClusterClock(final HazelcastInstance instance, final long refreshInterval) {
+        this.instance = instance;
+        this.refreshInterval = refreshInterval;
+        this.maxSampleAgeNanos = TimeUnit.MILLISECONDS.toNanos(refreshInterval * MAX_SAMPLE_AGE_IN_INTERVALS);
+        executor = Executors.newSingleThreadScheduledExecutor(new ClockThreadFactory(instance.getName()));
+    }
+
+    /**
+     * Takes the first sample and schedules the refreshes.
+     */
+    void start() {
+        refresh();
+        executor.scheduleAtFixedRate(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    refresh();
+                } catch (RuntimeException e) {
+                    // The sample ages, until it is refreshed on the calling thread
+                    Logger.getLogger(CachedClusterClock.class).finest(e);
+                }
+            }
+        }, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public long nextTimestamp() {
+        final Sample current = sample;
+        // No sample yet, if the clock is used between being registered and started
+        if (current == null) {
+            return refresh().clusterTime;
+        }
+        final long elapsed = System.nanoTime() - current.nanoTime;
+        if (elapsed > maxSampleAgeNanos) {
+            return refresh().clusterTime;
+        }
+        return current.clusterTime + TimeUnit.NANOSECONDS.toMillis(elapsed);
+    }
+
+    private Sample refresh() {
+        final long clusterTime = instance.getCluster().getClusterTime();
+        final Sample refreshed = new Sample(clusterTime, System.nanoTime());
+        sample = refreshed;
+        return refreshed;
+    }
+
+    /**
+     * The cluster time sampled at a given {@link System#nanoTime()}
+     */
+    private static final class Sample {
+
+        private final long clusterTime;
+        private final long nanoTime;
+
+        private Sample(final long clusterTime, final long nanoTime) {
+            this.clusterTime = clusterTime;
+            this.nanoTime = nanoTime;
+        }
+    }
+
+    /**
+     * Internal ThreadFactory to create the daemon thread refreshing the clock
+     */
+    private static final class ClockThreadFactory implements ThreadFactory {
+
+        private final String name;
+
+        private ClockThreadFactory(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, name + ".hibernate.clock");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -55,7 +55,8 @@ public class HazelcastLocalCacheRegionFactory extends AbstractHazelcastCacheRegi
     public CollectionRegion buildCollectionRegion(final String regionName, final Properties properties,
                                                   final CacheDataDescription metadata) throws CacheException {
         final HazelcastCollectionRegion<LocalRegionCache> region = new HazelcastCollectionRegion<LocalRegionCache>(instance,
-                regionName, properties, metadata, new LocalRegionCache(regionName, instance, metadata));
+                regionName, properties, metadata, new LocalRegionCache(regionName, instance, metadata, true,
+                        CacheEnvironment.isReliableInvalidationEnabled(properties)));
         cleanupService.registerCache(region.getCache());
         return region;
     }
@@ -64,7 +65,8 @@ public class HazelcastLocalCacheRegionFactory extends AbstractHazelcastCacheRegi
     public EntityRegion buildEntityRegion(final String regionName, final Properties properties,
                                           final CacheDataDescription metadata) throws CacheException {
         final HazelcastEntityRegion<LocalRegionCache> region = new HazelcastEntityRegion<LocalRegionCache>(instance,
-                regionName, properties, metadata, new LocalRegionCache(regionName, instance, metadata));
+                regionName, properties, metadata, new LocalRegionCache(regionName, instance, metadata, true,
+                        CacheEnvironment.isReliableInvalidationEnabled(properties)));
         cleanupService.registerCache(region.getCache());
         return region;
     }
@@ -73,7 +75,8 @@ public class HazelcastLocalCacheRegionFactory extends AbstractHazelcastCacheRegi
     public NaturalIdRegion buildNaturalIdRegion(final String regionName, final Properties properties,
                                                 final CacheDataDescription metadata) throws CacheException {
         final HazelcastNaturalIdRegion<LocalRegionCache> region = new HazelcastNaturalIdRegion<LocalRegionCache>(
-                instance, regionName, properties, metadata, new LocalRegionCache(regionName, instance, metadata));
+                instance, regionName, properties, metadata, new LocalRegionCache(regionName, instance, metadata, true,
+                        CacheEnvironment.isReliableInvalidationEnabled(properties)));
         cleanupService.registerCache(region.getCache());
 
         return region;
@@ -21,6 +21,9 @@ import com.hazelcast.config.MapConfig;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.logging.Logger;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * Helper class to create timestamps and calculate timeouts based on either Hazelcast
  * configuration of by requesting values on the cluster.
@@ -29,12 +32,20 @@ public final class HazelcastTimestamper {
 
     private static final int SEC_TO_MS = 1000;
 
+    private static final ConcurrentMap<HazelcastInstance, TimestampSource> TIMESTAMP_SOURCES =
+            new ConcurrentHashMap<HazelcastInstance, TimestampSource>();
+
     private HazelcastTimestamper() {
     }
 
     public static long nextTimestamp(final HazelcastInstance instance) {
         if (instance == null) {
             throw new RuntimeException("No Hazelcast instance!");
+        }
+
+        final TimestampSource source = TIMESTAMP_SOURCES.get(instance);
+        if (source != null) {
+            return source.nextTimestamp();
         } else if (instance.getCluster() == null) {
             throw new RuntimeException("Hazelcast instance has no cluster!");
         }
@@ -43,6 +54,26 @@ public final class HazelcastTimestamper {
         return instance.getCluster().getClusterTime();
     }
 
+    /**
+     * Makes {@link #nextTimestamp(HazelcastInstance)} take its timestamps from the given source rather than asking
+     * the cluster of the instance each time.
+     *
+     * @param instance the instance whose timestamps are taken from the source
+     * @param source   the source of the timestamps
+     * @return {@code true} if the source was registered, {@code false} if another source is already registered
+     */
+    public static boolean registerTimestampSource(final HazelcastInstance instance, final TimestampSource source) {
+        return TIMESTAMP_SOURCES.putIfAbsent(instance, source) == null;
+    }
+
+    /**
+     * @param instance the instance whose timestamps were taken from the source
+     * @param source   the source to deregister, if it is still registered
+     */
+    public static void deregisterTimestampSource(final HazelcastInstance instance, final TimestampSource source) {
+        TIMESTAMP_SOURCES.remove(instance, source);
+    }
+
     public static int getTimeout(final HazelcastInstance instance, final String regionName) {
         try {
             final MapConfig cfg = instance.getConfig().findMapConfig(regionName);
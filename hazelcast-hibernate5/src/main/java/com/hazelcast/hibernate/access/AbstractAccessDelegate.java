@@ -19,6 +19,7 @@ package com.hazelcast.hibernate.access;
 import com.hazelcast.core.HazelcastException;
 import com.hazelcast.hibernate.RegionCache;
 import com.hazelcast.hibernate.region.AbstractTransactionalDataRegion;
+import com.hazelcast.hibernate.region.EntityNames;
 import com.hazelcast.hibernate.region.HazelcastRegion;
 import com.hazelcast.logging.ILogger;
 import org.hibernate.cache.CacheException;
@@ -59,7 +60,8 @@ public abstract class AbstractAccessDelegate<T extends HazelcastRegion> implemen
     @Override
     public Object get(final Object key, final long txTimestamp) throws CacheException {
         try {
-            return cache.get(key, txTimestamp);
+            final Object value = cache.get(key, txTimestamp);
+            return EntityNames.isUnresolved(value) ? null : value;
         } catch (HazelcastException e) {
             if (log.isFinestEnabled()) {
                 log.finest("Could not read from Cache[" + hazelcastRegion.getName() + "]: " + e.getMessage());
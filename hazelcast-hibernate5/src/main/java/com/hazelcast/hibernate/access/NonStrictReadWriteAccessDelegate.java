@@ -17,6 +17,7 @@
 package com.hazelcast.hibernate.access;
 
 import com.hazelcast.core.HazelcastException;
+import com.hazelcast.hibernate.distributed.IMapRegionCache;
 import com.hazelcast.hibernate.region.HazelcastRegion;
 import org.hibernate.cache.CacheException;
 import org.hibernate.cache.spi.access.SoftLock;
@@ -33,6 +34,10 @@ public class NonStrictReadWriteAccessDelegate<T extends HazelcastRegion> extends
 
     public NonStrictReadWriteAccessDelegate(T hazelcastRegion, final Properties props) {
         super(hazelcastRegion, props);
+        if (cache instanceof IMapRegionCache) {
+            // A near copy may be read until the change of another member is seen, which this strategy allows for
+            ((IMapRegionCache) cache).enableNearCache();
+        }
     }
 
     /**
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.distributed;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.Member;
+import com.hazelcast.logging.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Collects statistics of an IMap from the local map statistics of each member, which takes one task per member
+ * rather than one remote call per entry or partition.
+ * <p/>
+ * The collected statistics are kept for the given refresh interval, so polling them more often does not add to
+ * the load of the cluster. The number and the memory cost of entries are collected together, so reading both
+ * takes a single round of tasks. The tasks are waited for without holding a lock: while one thread collects
+ * the statistics, others read the ones collected before, or find them unknown if there are none yet.
+ * <p/>
+ * The tasks of all members are waited for at most five seconds in total, so a slow or unreachable member cannot
+ * stall the caller. The statistics are unknown if they could not be collected in time, or if map statistics are
+ * disabled on any member. Callers fall back to counting the entries of the IMap then, and the statistics are not
+ * collected again before the refresh interval has passed.
+ */
+final class ClusterMapStatistics {
+
+    static final String EXECUTOR_NAME = "hibernate.statistics";
+
+    static final long COLLECTION_TIMEOUT_MILLIS = 5000L;
+
+    private final HazelcastInstance hazelcastInstance;
+    private final String mapName;
+    private final long refreshIntervalMillis;
+    private final AtomicBoolean collecting = new AtomicBoolean();
+    private volatile Snapshot snapshot;
+
+    /**
+     * @param hazelcastInstance     the instance to run the tasks with
+     * @param mapName               the name of the IMap
+     * @param refreshIntervalMillis the time in milliseconds collected statistics are kept for
+     */
+    ClusterMapStatistics(final HazelcastInstance hazelcastInstance, final String mapName,
+                         final long refreshIntervalMillis) {
+        this.hazelcastInstance = hazelcastInstance;
+        this.mapName = mapName;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+
+    /**
+     * @return the number of entries of the IMap on all members, or {@code -1} if it could not be collected
+     */
+    long getOwnedEntryCount() {
+        return getTotal(OwnedEntryStatsTask.ENTRY_COUNT);
+    }
+
+    /**
+     * @return the memory cost of the entries of the IMap on all members, or {@code -1} if it could not be collected
+     */
+    long getOwnedEntryMemoryCost() {
+        return getTotal(OwnedEntryStatsTask.MEMORY_COST);
+    }
+
+    private long getTotal(final int index) {
+        Snapshot current = snapshot;
+        final long now = System.currentTimeMillis();
+        if ((current == null || now >= current.expirationTime) && collecting.compareAndSet(false, true)) {
+            try {
+                current = new Snapshot(collectTotals(), now + refreshIntervalMillis);
+                snapshot = current;
+            } finally {
+                collecting.set(false);
+            }
+        }
+        return current == null || current.totals == null ? -1 : current.totals[index];
+    }
+
+    private long[] collectTotals() {
+        final Map<Member, Future<long[]>> futures = hazelcastInstance.getExecutorService(EXECUTOR_NAME)
+                .submitToAllMembers(new OwnedEntryStatsTask(mapName));
+        final long[] result = new long[2];
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(COLLECTION_TIMEOUT_MILLIS);
+        try {
+            for (final Future<long[]> future : futures.values()) {
+                final long[] memberStats = future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                for (int i = 0; i < result.length; i++) {
+                    if (memberStats[i] == OwnedEntryStatsTask.UNKNOWN) {
+                        return null;
+                    }
+                    result[i] += memberStats[i];
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Logger.getLogger(ClusterMapStatistics.class).finest(e);
+            return null;
+        } catch (TimeoutException e) {
+            Logger.getLogger(ClusterMapStatistics.class).finest("Statistics of " + mapName + " were not collected in time");
+            return null;
+        } catch (RuntimeException e) {
+            Logger.getLogger(ClusterMapStatistics.class).finest(e);
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * The totals collected, kept until their expiration time
+     */
+    private static final class Snapshot {
+
+        // null if the statistics could not be collected
+        private final long[] totals;
+        private final long expirationTime;
+
+        private Snapshot(final long[] totals, final long expirationTime) {
+            this.totals = totals;
+            this.expirationTime = expirationTime;
+        }
+    }
+}
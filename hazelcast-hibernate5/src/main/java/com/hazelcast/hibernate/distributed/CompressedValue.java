@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.hibernate.distributed;
+
+import com.hazelcast.hibernate.serialization.HibernateDataSerializerHook;
+import com.hazelcast.internal.serialization.InternalSerializationService;
+import com.hazelcast.internal.serialization.impl.HeapData;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.HazelcastSerializationException;
+import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
+
+import java.io.IOException;
+
+/**
+ * Holds a value of an {@link IMapRegionCache} which is compressed with {@link Lzf} when its serialized form is
+ * larger than a threshold.
+ * <p/>
+ * The payload is preceded by a format marker, so raw and compressed payloads are told apart, and values cached
+ * before compression was enabled are plain values. A holder read from its serialized form keeps its payload, so
+ * entry processors and members which only pass it on neither decompress nor deserialize it. The value is
+ * decompressed and deserialized the first time it is asked for.
+ */
+public final class CompressedValue implements IdentifiedDataSerializable {
+
+    private static final byte RAW = 0;
+    private static final byte LZF = 1;
+
+    private int threshold;
+    private CompressionStatistics statistics;
+    private byte format;
+    private int length;
+    private byte[] payload;
+    private InternalSerializationService serializationService;
+    private volatile Object value;
+
+    public CompressedValue() {
+    }
+
+    /**
+     * @param value      the value to hold
+     * @param threshold  the size in bytes the serialized value must exceed to be compressed
+     * @param statistics the statistics to record compressions in
+     */
+    CompressedValue(final Object value, final int threshold, final CompressionStatistics statistics) {
+        this.value = value;
+        this.threshold = threshold;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @param statistics the statistics to record a decompression in
+     * @return the value held
+     * @throws HazelcastSerializationException if a compressed payload is malformed
+     */
+    Object getValue(final CompressionStatistics statistics) {
+        Object result = value;
+        if (result == null) {
+            byte[] bytes = payload;
+            if (format == LZF) {
+                final long start = System.nanoTime();
+                try {
+                    bytes = Lzf.decompress(payload, length);
+                } catch (IOException e) {
+                    throw new HazelcastSerializationException(e);
+                }
+                statistics.decompression(System.nanoTime() - start);
+            }
+            result = serializationService.toObject(new HeapData(bytes));
+            value = result;
+        }
+        return result;
+    }
+
+    @Override
+    public void writeData(final ObjectDataOutput out) throws IOException {
+        if (payload == null) {
+            encode(out.getSerializationService().toData(value).toByteArray());
+        }
+        out.writeByte(format);
+        if (format == LZF) {
+            out.writeInt(length);
+        }
+        out.writeByteArray(payload);
+    }
+
+    private void encode(final byte[] bytes) {
+        if (bytes.length > threshold) {
+            final long start = System.nanoTime();
+            final byte[] compressed = Lzf.compress(bytes);
+            final boolean smaller = compressed.length < bytes.length;
+            statistics.compression(bytes.length, smaller ? compressed.length : bytes.length, System.nanoTime() - start);
+            if (smaller) {
+                length = bytes.length;
+                format = LZF;
+                payload = compressed;
+                return;
+            }
+        }
+        format = RAW;
+        payload = bytes;
+    }
+
+    @Override
+    public void readData(final ObjectDataInput in) throws IOException {
+        format = in.readByte();
+        if (format == LZF) {
+            length = in.readInt();
+        } else if (format != RAW) {
+            throw new IOException("Unknown format of compressed value: " + format);
+        }
+        payload = in.readByteArray();
+        serializationService = in.getSerializationService();
+    }
+
+    @Override
+    public int getFactoryId() {
+        return HibernateDataSerializerHook.F_ID;
+    }
+
+    @Override
+    public int getId() {
+        return HibernateDataSerializerHook.COMPRESSED_VALUE;
+    }
+}
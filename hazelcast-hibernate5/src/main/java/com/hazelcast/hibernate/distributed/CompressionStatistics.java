@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.hibernate.distributed;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics about the compression of the values of an {@link IMapRegionCache}. Values are compressed where they
+ * are serialized, so these count the values this member wrote or read.
+ */
+public final class CompressionStatistics {
+
+    private final AtomicLong compressions = new AtomicLong();
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong compressionNanos = new AtomicLong();
+    private final AtomicLong decompressions = new AtomicLong();
+    private final AtomicLong decompressionNanos = new AtomicLong();
+
+    void compression(final int uncompressedLength, final int storedLength, final long nanos) {
+        compressions.incrementAndGet();
+        uncompressedBytes.addAndGet(uncompressedLength);
+        compressedBytes.addAndGet(storedLength);
+        compressionNanos.addAndGet(nanos);
+    }
+
+    void decompression(final long nanos) {
+        decompressions.incrementAndGet();
+        decompressionNanos.addAndGet(nanos);
+    }
+
+    /**
+     * @return the number of values larger than the threshold which were compressed
+     */
+    public long getCompressions() {
+        return compressions.get();
+    }
+
+    /**
+     * @return the total size of the values compressed before compressing them
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    /**
+     * @return the total size of the values compressed as they were stored, which is their uncompressed size for
+     * values which did not get smaller
+     */
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    /**
+     * @return the compressed size of the values compressed relative to their uncompressed size, or {@code 1} if
+     * none were
+     */
+    public double getCompressionRatio() {
+        final long uncompressed = uncompressedBytes.get();
+        return uncompressed == 0 ? 1 : (double) compressedBytes.get() / uncompressed;
+    }
+
+    /**
+     * @return the time in nanoseconds spent compressing values
+     */
+    public long getCompressionNanos() {
+        return compressionNanos.get();
+    }
+
+    /**
+     * @return the number of compressed values which were decompressed
+     */
+    public long getDecompressions() {
+        return decompressions.get();
+    }
+
+    /**
+     * @return the time in nanoseconds spent decompressing values
+     */
+    public long getDecompressionNanos() {
+        return decompressionNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionStatistics{compressions=" + compressions.get()
+                + ", uncompressedBytes=" + uncompressedBytes.get()
+                + ", compressedBytes=" + compressedBytes.get()
+                + ", compressionNanos=" + compressionNanos.get()
+                + ", decompressions=" + decompressions.get()
+                + ", decompressionNanos=" + decompressionNanos.get()
+                + '}';
+    }
+}
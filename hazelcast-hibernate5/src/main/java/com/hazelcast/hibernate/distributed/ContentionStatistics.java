@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.hibernate.distributed;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics about the contention seen by the puts of an {@link IMapRegionCache}, both those which are retried on
+ * conflicts rather than run as an entry processor and those which are dropped because too many asynchronous puts
+ * are in flight.
+ */
+public final class ContentionStatistics {
+
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong abandonedPuts = new AtomicLong();
+    private final AtomicLong droppedPuts = new AtomicLong();
+
+    void conflict() {
+        conflicts.incrementAndGet();
+    }
+
+    void retry() {
+        retries.incrementAndGet();
+    }
+
+    void abandon() {
+        abandonedPuts.incrementAndGet();
+    }
+
+    void drop() {
+        droppedPuts.incrementAndGet();
+    }
+
+    /**
+     * @return the number of times an entry changed between reading and replacing it
+     */
+    public long getConflicts() {
+        return conflicts.get();
+    }
+
+    /**
+     * @return the number of times a put was retried after a conflict
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * @return the number of puts given up because of a conflict with another transaction or timing out
+     */
+    public long getAbandonedPuts() {
+        return abandonedPuts.get();
+    }
+
+    /**
+     * @return the number of asynchronous puts dropped because the maximum number of them were in flight
+     */
+    public long getDroppedPuts() {
+        return droppedPuts.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ContentionStatistics{conflicts=" + conflicts.get()
+                + ", retries=" + retries.get()
+                + ", abandonedPuts=" + abandonedPuts.get()
+                + ", droppedPuts=" + droppedPuts.get()
+                + '}';
+    }
+}
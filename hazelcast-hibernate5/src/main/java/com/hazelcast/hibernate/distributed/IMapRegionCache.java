@@ -16,9 +16,10 @@
 
 package com.hazelcast.hibernate.distributed;
 
-import com.hazelcast.core.EntryView;
+import com.hazelcast.core.ExecutionCallback;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.IMap;
+import com.hazelcast.hibernate.BulkReadRegionCache;
 import com.hazelcast.hibernate.CacheEnvironment;
 import com.hazelcast.hibernate.HazelcastTimestamper;
 import com.hazelcast.hibernate.RegionCache;
@@ -26,13 +27,22 @@ import com.hazelcast.hibernate.serialization.Expirable;
 import com.hazelcast.hibernate.serialization.MarkerWrapper;
 import com.hazelcast.hibernate.serialization.ExpiryMarker;
 import com.hazelcast.hibernate.serialization.Value;
+import com.hazelcast.internal.util.ThreadLocalRandomProvider;
+import com.hazelcast.logging.Logger;
 import org.hibernate.cache.spi.CacheDataDescription;
 import org.hibernate.cache.spi.access.SoftLock;
 
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import static com.hazelcast.hibernate.HazelcastTimestamper.nextTimestamp;
 
@@ -48,10 +58,28 @@ import static com.hazelcast.hibernate.HazelcastTimestamper.nextTimestamp;
  *     <li>An entry is unlocked if it reaches the configured lock timeout</li>
  * </ul>
  * These requirements are incompatible with IMap locks
+ * <p/>
+ * When {@link CacheEnvironment#ASYNC_PUT_FROM_LOAD_WINDOW} is set, values loaded from the database are put without
+ * waiting for the put to complete, as caching them is best effort anyway. At most that many puts are in flight per
+ * region, further puts are dropped until earlier ones complete. Regions without metadata, such as the timestamps
+ * region, and values whose version comparator is not known to {@link VersionComparators} always wait for their
+ * puts.
+ * <p/>
+ * When {@link CacheEnvironment#NEAR_CACHE_MAX_SIZE} is set and the near cache is {@link #enableNearCache enabled},
+ * values read are kept in a {@link NearCache} on this member. Entries soft-locked by an {@link ExpiryMarker} are
+ * never kept, see {@link NearCache} for when copies are invalidated. A copy may still be read after another member
+ * soft-locked or changed its entry, so only regions accessed read-only or nonstrict read-write enable it. The
+ * timestamps region never keeps near copies.
+ * <p/>
+ * When {@link CacheEnvironment#COMPRESSION_THRESHOLD} is set, values are written as a {@link CompressedValue}, which
+ * compresses those whose serialized form exceeds the threshold. Values are decompressed when they are read, whether
+ * compression is enabled on this member or not. The timestamps region never compresses its values.
  */
-public class IMapRegionCache implements RegionCache {
+public class IMapRegionCache implements RegionCache, BulkReadRegionCache {
 
     private static final long COMPARISON_VALUE = 500;
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
 
     private final String name;
     private final HazelcastInstance hazelcastInstance;
@@ -60,6 +88,28 @@ public class IMapRegionCache implements RegionCache {
     private final int lockTimeout;
     private final long tryLockAndGetTimeout;
     private final AtomicLong markerIdCounter;
+    private final ContentionStatistics contentionStatistics = new ContentionStatistics();
+    private final CompressionStatistics compressionStatistics = new CompressionStatistics();
+    private final Semaphore asyncPutPermits;
+    private final int nearCacheMaxSize;
+    private final int nearCacheTimeToLive;
+    private volatile NearCache nearCache;
+    private String nearCacheListenerId;
+    private final int compressionThreshold;
+    private final int statisticsRefreshInterval;
+    private final ClusterMapStatistics clusterStatistics;
+    private final ExecutionCallback<Object> asyncPutCallback = new ExecutionCallback<Object>() {
+        @Override
+        public void onResponse(final Object response) {
+            asyncPutPermits.release();
+        }
+
+        @Override
+        public void onFailure(final Throwable t) {
+            asyncPutPermits.release();
+            Logger.getLogger(IMapRegionCache.class).finest(t);
+        }
+    };
 
     public IMapRegionCache(final String name, final HazelcastInstance hazelcastInstance,
                            final Properties props, final CacheDataDescription metadata) {
@@ -71,54 +121,178 @@ public class IMapRegionCache implements RegionCache {
         final long maxOperationTimeout = HazelcastTimestamper.getMaxOperationTimeout(hazelcastInstance);
         tryLockAndGetTimeout = Math.min(maxOperationTimeout, COMPARISON_VALUE);
         markerIdCounter = new AtomicLong();
+        statisticsRefreshInterval = CacheEnvironment.getStatisticsRefreshIntervalInMillis(props);
+        clusterStatistics = new ClusterMapStatistics(hazelcastInstance, name, statisticsRefreshInterval);
+        final int asyncPutFromLoadWindow = metadata != null ? CacheEnvironment.getAsyncPutFromLoadWindow(props) : 0;
+        asyncPutPermits = asyncPutFromLoadWindow > 0 ? new Semaphore(asyncPutFromLoadWindow) : null;
+        nearCacheMaxSize = metadata != null ? CacheEnvironment.getNearCacheMaxSize(props) : 0;
+        nearCacheTimeToLive = CacheEnvironment.getNearCacheTimeToLiveInMillis(props);
+        compressionThreshold = metadata != null ? CacheEnvironment.getCompressionThreshold(props, name) : 0;
+    }
+
+    /**
+     * Starts keeping near copies of the values read, if {@link CacheEnvironment#NEAR_CACHE_MAX_SIZE} is set.
+     * <p/>
+     * To be called only for regions whose access strategy tolerates reading a value after another member changed
+     * it, that is read-only and nonstrict read-write regions.
+     */
+    public synchronized void enableNearCache() {
+        if (nearCacheMaxSize > 0 && nearCache == null) {
+            final NearCache created = new NearCache(nearCacheMaxSize, nearCacheTimeToLive);
+            nearCacheListenerId = map.addEntryListener(created, false);
+            nearCache = created;
+        }
+    }
+
+    /**
+     * Stops keeping near copies and removes the listener invalidating them.
+     */
+    public synchronized void destroy() {
+        if (nearCacheListenerId != null) {
+            map.removeEntryListener(nearCacheListenerId);
+            nearCacheListenerId = null;
+        }
+        nearCache = null;
     }
 
     @Override
     public Object get(final Object key, final long txTimestamp) {
-        Expirable entry = map.get(key);
-        return entry == null ? null : entry.getValue(txTimestamp);
+        final NearCache nearCache = this.nearCache;
+        if (nearCache == null) {
+            return valueOf(map.get(key), txTimestamp);
+        }
+        final Value copy = nearCache.get(key);
+        if (copy != null) {
+            return valueOf(copy, txTimestamp);
+        }
+        final long sequence = nearCache.beforeRead();
+        final Expirable entry = map.get(key);
+        nearCache.put(key, entry, sequence);
+        return valueOf(entry, txTimestamp);
+    }
+
+    @Override
+    public Map<Object, Object> getAll(final Collection<?> keys, final long txTimestamp) {
+        final Map<Object, Object> result = new HashMap<Object, Object>(keys.size());
+        final Set<Object> remoteKeys = new HashSet<Object>(keys.size());
+        final NearCache nearCache = this.nearCache;
+        for (final Object key : keys) {
+            final Value copy = nearCache == null ? null : nearCache.get(key);
+            if (copy == null) {
+                remoteKeys.add(key);
+            } else {
+                putReadable(result, key, copy, txTimestamp);
+            }
+        }
+        if (remoteKeys.isEmpty()) {
+            return result;
+        }
+        final long sequence = nearCache == null ? 0 : nearCache.beforeRead();
+        // IMap.getAll groups the keys by their owner, so this takes one call per member rather than one per key
+        final Map<Object, Expirable> entries = map.getAll(remoteKeys);
+        for (final Object key : remoteKeys) {
+            final Expirable entry = entries.get(key);
+            if (nearCache != null) {
+                nearCache.put(key, entry, sequence);
+            }
+            if (entry != null) {
+                putReadable(result, key, entry, txTimestamp);
+            }
+        }
+        return result;
+    }
+
+    private void putReadable(final Map<Object, Object> result, final Object key, final Expirable entry,
+                             final long txTimestamp) {
+        final Object value = valueOf(entry, txTimestamp);
+        if (value != null) {
+            result.put(key, value);
+        }
+    }
+
+    private Object valueOf(final Expirable entry, final long txTimestamp) {
+        final Object value = entry == null ? null : entry.getValue(txTimestamp);
+        return value instanceof CompressedValue ? ((CompressedValue) value).getValue(compressionStatistics) : value;
+    }
+
+    private Object compressible(final Object value) {
+        return compressionThreshold > 0 && value != null
+                ? new CompressedValue(value, compressionThreshold, compressionStatistics)
+                : value;
     }
 
     @Override
     public boolean insert(final Object key, final Object value, final Object currentVersion) {
-        return map.putIfAbsent(key, new Value(currentVersion, nextTimestamp(hazelcastInstance), value)) == null;
+        final Value newValue = new Value(currentVersion, nextTimestamp(hazelcastInstance), compressible(value));
+        final boolean inserted = map.putIfAbsent(key, newValue) == null;
+        invalidateNearCopy(key);
+        return inserted;
     }
 
     @Override
     public boolean put(final Object key, final Object value, final long txTimestamp, final Object version) {
-        // Ideally this would be an entry processor. Unfortunately there is no guarantee that
-        // the versionComparator is Serializable.
-        //
-        // Alternatively this could be implemented using a `map.get` followed by `map.set` wrapped inside a
-        // `map.tryLock` block. Unfortunately this implementation was prone to `IllegalMonitorStateException` when
-        // the lock was released under heavy load or after network partitions. Hence this implementation now uses
+        // The versionComparator is not necessarily Serializable, so the entry processor refers to it by type id
+        final int comparatorTypeId = VersionComparators.getTypeId(versionComparator, version);
+        if (comparatorTypeId != VersionComparators.UNKNOWN) {
+            final PutFromLoadEntryProcessor entryProcessor =
+                    new PutFromLoadEntryProcessor(compressible(value), version, txTimestamp, comparatorTypeId);
+            if (asyncPutPermits != null) {
+                return submit(key, entryProcessor);
+            }
+            final boolean put = (Boolean) map.executeOnKey(key, entryProcessor);
+            invalidateNearCopy(key);
+            return put;
+        }
+
+        // Without a registered comparator this could be implemented using a `map.get` followed by `map.set` wrapped
+        // inside a `map.tryLock` block. Unfortunately this implementation was prone to `IllegalMonitorStateException`
+        // when the lock was released under heavy load or after network partitions. Hence this implementation uses
         // a spin loop around atomic operations.
-        long timeout = System.currentTimeMillis() + tryLockAndGetTimeout;
-        do {
-            Expirable previousEntry = map.get(key);
-            Value newValue = new Value(version, txTimestamp, value);
+        final Value newValue = new Value(version, txTimestamp, compressible(value));
+        final long timeout = System.currentTimeMillis() + tryLockAndGetTimeout;
+        long backoff = MIN_BACKOFF_NANOS;
+        boolean conflicted = false;
+        while (true) {
+            final Expirable previousEntry = map.get(key);
+            if (conflicted && previousEntry instanceof ExpiryMarker) {
+                // Another transaction is updating the entry, whatever we put would be stale soon anyway
+                contentionStatistics.abandon();
+                return false;
+            }
             if (previousEntry == null) {
                 if (map.putIfAbsent(key, newValue) == null) {
+                    invalidateNearCopy(key);
                     return true;
                 }
             } else if (previousEntry.isReplaceableBy(txTimestamp, version, versionComparator)) {
                 if (map.replace(key, previousEntry, newValue)) {
+                    invalidateNearCopy(key);
                     return true;
                 }
             } else {
                 return false;
             }
-        } while (System.currentTimeMillis() < timeout);
 
-        return false;
+            contentionStatistics.conflict();
+            conflicted = true;
+            if (System.currentTimeMillis() >= timeout) {
+                contentionStatistics.abandon();
+                return false;
+            }
+            backoff(backoff);
+            backoff = Math.min(MAX_BACKOFF_NANOS, backoff * 2);
+            contentionStatistics.retry();
+        }
     }
 
     @Override
     public boolean update(final Object key, final Object newValue, final Object newVersion, final SoftLock lock) {
         if (lock instanceof MarkerWrapper) {
             final ExpiryMarker unwrappedMarker = ((MarkerWrapper) lock).getMarker();
-            return (Boolean) map.executeOnKey(key, new UpdateEntryProcessor(unwrappedMarker, newValue, newVersion,
-                    nextMarkerId(), nextTimestamp(hazelcastInstance)));
+            final boolean updated = (Boolean) map.executeOnKey(key, new UpdateEntryProcessor(unwrappedMarker,
+                    compressible(newValue), newVersion, nextMarkerId(), nextTimestamp(hazelcastInstance)));
+            invalidateNearCopy(key);
+            return updated;
         } else {
             return false;
         }
@@ -126,7 +300,9 @@ public class IMapRegionCache implements RegionCache {
 
     @Override
     public boolean remove(final Object key) {
-        return map.remove(key) != null;
+        final boolean removed = map.remove(key) != null;
+        invalidateNearCopy(key);
+        return removed;
     }
 
     @Override
@@ -134,6 +310,8 @@ public class IMapRegionCache implements RegionCache {
         long timeout = nextTimestamp(hazelcastInstance) + lockTimeout;
         final ExpiryMarker marker = (ExpiryMarker) map.executeOnKey(key,
                 new LockEntryProcessor(nextMarkerId(), timeout, version));
+        // Once the entry is locked it must not be read from a copy taken before
+        invalidateNearCopy(key);
         return new MarkerWrapper(marker);
     }
 
@@ -143,6 +321,7 @@ public class IMapRegionCache implements RegionCache {
             final ExpiryMarker unwrappedMarker = ((MarkerWrapper) lock).getMarker();
             map.executeOnKey(key, new UnlockEntryProcessor(unwrappedMarker, nextMarkerId(),
                     nextTimestamp(hazelcastInstance)));
+            invalidateNearCopy(key);
         }
     }
 
@@ -154,23 +333,22 @@ public class IMapRegionCache implements RegionCache {
     @Override
     public void clear() {
         map.evictAll();
+        final NearCache nearCache = this.nearCache;
+        if (nearCache != null) {
+            nearCache.invalidateAll();
+        }
     }
 
     @Override
     public long size() {
-        return map.size();
+        // Counting exactly visits every partition, so it is left to the collected statistics if they may be stale
+        final long count = statisticsRefreshInterval > 0 ? clusterStatistics.getOwnedEntryCount() : -1;
+        return count >= 0 ? count : map.size();
     }
 
     @Override
     public long getSizeInMemory() {
-        long size = 0;
-        for (final Object key : map.keySet()) {
-            final EntryView entry = map.getEntryView(key);
-            if (entry != null) {
-                size += entry.getCost();
-            }
-        }
-        return size;
+        return clusterStatistics.getOwnedEntryMemoryCost();
     }
 
     @Override
@@ -178,6 +356,56 @@ public class IMapRegionCache implements RegionCache {
         return map;
     }
 
+    /**
+     * @return statistics about the contention seen by puts which cannot be run as an entry processor
+     */
+    public ContentionStatistics getContentionStatistics() {
+        return contentionStatistics;
+    }
+
+    /**
+     * @return statistics about the near cache of this region, or {@code null} if it has none
+     */
+    public NearCacheStatistics getNearCacheStatistics() {
+        final NearCache nearCache = this.nearCache;
+        return nearCache != null ? nearCache.getStatistics() : null;
+    }
+
+    /**
+     * @return statistics about the compression of the values this member wrote or read
+     */
+    public CompressionStatistics getCompressionStatistics() {
+        return compressionStatistics;
+    }
+
+    private void invalidateNearCopy(final Object key) {
+        final NearCache nearCache = this.nearCache;
+        if (nearCache != null) {
+            nearCache.invalidate(key);
+        }
+    }
+
+    private boolean submit(final Object key, final PutFromLoadEntryProcessor entryProcessor) {
+        if (!asyncPutPermits.tryAcquire()) {
+            contentionStatistics.drop();
+            return false;
+        }
+        try {
+            map.submitToKey(key, entryProcessor, asyncPutCallback);
+        } catch (RuntimeException e) {
+            asyncPutPermits.release();
+            throw e;
+        }
+        // Whether the value is newer than the cached one is only known once the put completes
+        return true;
+    }
+
+    private static void backoff(final long backoff) {
+        // Wait between half and all of the backoff, so threads conflicting on the same key spread out
+        final long half = backoff / 2;
+        LockSupport.parkNanos(half + (long) (ThreadLocalRandomProvider.get().nextDouble() * half));
+    }
+
     private String nextMarkerId() {
         return hazelcastInstance.getLocalEndpoint().getUuid() + markerIdCounter.getAndIncrement();
     }
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.hibernate.distributed;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compresses bytes in the LZF format, a byte oriented LZ77 variant which trades ratio for speed.
+ * <p/>
+ * The compressed form is a sequence of runs. A control byte below 32 starts a run of that many plus one literal
+ * bytes. Any other control byte starts a back reference: its upper three bits hold the length of the match minus
+ * two, continued in the next byte when they are all set, and its lower five bits together with the byte after
+ * hold the distance to the match minus one.
+ */
+@SuppressWarnings("checkstyle:magicnumber")
+final class Lzf {
+
+    private static final int HASH_BITS = 14;
+    private static final int MAX_LITERALS = 32;
+    private static final int MAX_DISTANCE = 8192;
+    private static final int MAX_MATCH = 264;
+    private static final int MIN_MATCH = 3;
+    private static final int LENGTH_SHIFT = 5;
+    private static final int LONG_LENGTH = 7;
+
+    private Lzf() {
+    }
+
+    /**
+     * @param input the bytes to compress
+     * @return the compressed bytes, which may be longer than the input if it does not compress
+     */
+    static byte[] compress(final byte[] input) {
+        final byte[] output = new byte[input.length + input.length / MAX_LITERALS + 2];
+        final int[] positions = new int[1 << HASH_BITS];
+        int in = 0;
+        // The control byte of the current literal run is reserved ahead of its literals
+        int out = 1;
+        int literals = 0;
+        while (in < input.length - 2) {
+            final int hash = hash(input, in);
+            final int reference = positions[hash] - 1;
+            positions[hash] = in + 1;
+            final int distance = in - reference - 1;
+            if (reference >= 0 && distance < MAX_DISTANCE && input[reference] == input[in]
+                    && input[reference + 1] == input[in + 1] && input[reference + 2] == input[in + 2]) {
+                final int length = matchLength(input, reference, in);
+                out = endLiterals(output, out, literals);
+                out = writeReference(output, out, length, distance);
+                literals = 0;
+                in += length;
+            } else {
+                output[out++] = input[in++];
+                if (++literals == MAX_LITERALS) {
+                    out = endLiterals(output, out, literals) + 1;
+                    literals = 0;
+                }
+            }
+        }
+        while (in < input.length) {
+            output[out++] = input[in++];
+            if (++literals == MAX_LITERALS) {
+                out = endLiterals(output, out, literals) + 1;
+                literals = 0;
+            }
+        }
+        return Arrays.copyOf(output, endLiterals(output, out, literals));
+    }
+
+    /**
+     * @param input  the compressed bytes
+     * @param length the length of the uncompressed bytes
+     * @return the uncompressed bytes
+     * @throws IOException if the input is not in the LZF format or does not uncompress to the given length
+     */
+    static byte[] decompress(final byte[] input, final int length) throws IOException {
+        final byte[] output = new byte[length];
+        int in = 0;
+        int out = 0;
+        try {
+            while (in < input.length) {
+                final int control = input[in++] & 0xFF;
+                if (control < MAX_LITERALS) {
+                    System.arraycopy(input, in, output, out, control + 1);
+                    in += control + 1;
+                    out += control + 1;
+                } else {
+                    int matchLength = control >> LENGTH_SHIFT;
+                    if (matchLength == LONG_LENGTH) {
+                        matchLength += input[in++] & 0xFF;
+                    }
+                    int reference = out - ((control & (MAX_LITERALS - 1)) << 8) - (input[in++] & 0xFF) - 1;
+                    // The match may overlap the bytes it produces, so it is copied byte by byte
+                    final int end = out + matchLength + 2;
+                    while (out < end) {
+                        output[out++] = output[reference++];
+                    }
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Malformed LZF input", e);
+        }
+        if (out != length) {
+            throw new IOException("LZF input uncompressed to " + out + " bytes instead of " + length);
+        }
+        return output;
+    }
+
+    private static int hash(final byte[] input, final int in) {
+        final int value = (input[in] & 0xFF) << 16 | (input[in + 1] & 0xFF) << 8 | (input[in + 2] & 0xFF);
+        return (value * -1640531535) >>> (Integer.SIZE - HASH_BITS);
+    }
+
+    private static int matchLength(final byte[] input, final int reference, final int in) {
+        final int maxLength = Math.min(MAX_MATCH, input.length - in);
+        int length = MIN_MATCH;
+        while (length < maxLength && input[reference + length] == input[in + length]) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Writes the control byte of the current literal run, or drops the byte reserved for it if the run is empty.
+     *
+     * @return the position after the run
+     */
+    private static int endLiterals(final byte[] output, final int out, final int literals) {
+        if (literals == 0) {
+            return out - 1;
+        }
+        output[out - literals - 1] = (byte) (literals - 1);
+        return out;
+    }
+
+    /**
+     * Writes a back reference and reserves the control byte of the literal run after it.
+     *
+     * @return the position after the reserved control byte
+     */
+    private static int writeReference(final byte[] output, final int out, final int length, final int distance) {
+        int position = out;
+        final int encodedLength = length - 2;
+        if (encodedLength < LONG_LENGTH) {
+            output[position++] = (byte) ((encodedLength << LENGTH_SHIFT) + (distance >> 8));
+        } else {
+            output[position++] = (byte) ((LONG_LENGTH << LENGTH_SHIFT) + (distance >> 8));
+            output[position++] = (byte) (encodedLength - LONG_LENGTH);
+        }
+        output[position++] = (byte) distance;
+        return position + 1;
+    }
+}
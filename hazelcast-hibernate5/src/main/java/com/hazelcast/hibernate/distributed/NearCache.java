@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.distributed;
+
+import com.hazelcast.core.EntryEvent;
+import com.hazelcast.core.MapEvent;
+import com.hazelcast.hibernate.serialization.Expirable;
+import com.hazelcast.hibernate.serialization.Value;
+import com.hazelcast.map.listener.EntryAddedListener;
+import com.hazelcast.map.listener.EntryEvictedListener;
+import com.hazelcast.map.listener.EntryExpiredListener;
+import com.hazelcast.map.listener.EntryMergedListener;
+import com.hazelcast.map.listener.EntryRemovedListener;
+import com.hazelcast.map.listener.EntryUpdatedListener;
+import com.hazelcast.map.listener.MapClearedListener;
+import com.hazelcast.map.listener.MapEvictedListener;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps copies of the {@link Value values} read from the IMap of a distributed region on this member.
+ * <p/>
+ * Only values are kept, an {@link com.hazelcast.hibernate.serialization.ExpiryMarker ExpiryMarker} read from the
+ * IMap is never copied, so an entry soft-locked when it is read is always read from the IMap. An entry is
+ * invalidated right after this member changed it and when the event of another member changing it is received.
+ * Every invalidation bumps a sequence, and a copy is discarded when the sequence changed since its read from
+ * the IMap started, so a copy read before a change cannot outlive the invalidation of that change. Until the
+ * event of a change by another member is received its previous value may still be read, which is bounded by the
+ * time to live of copies in case an event is lost. This includes changes soft-locking an entry, hence near caches
+ * are only kept for regions accessed read-only or nonstrict read-write.
+ */
+final class NearCache implements EntryAddedListener<Object, Object>, EntryUpdatedListener<Object, Object>,
+        EntryRemovedListener<Object, Object>, EntryEvictedListener<Object, Object>,
+        EntryExpiredListener<Object, Object>, EntryMergedListener<Object, Object>, MapClearedListener,
+        MapEvictedListener {
+
+    private final ConcurrentMap<Object, Copy> copies = new ConcurrentHashMap<Object, Copy>();
+    private final AtomicLong invalidationSequence = new AtomicLong();
+    private final NearCacheStatistics statistics = new NearCacheStatistics();
+    private final int maxSize;
+    private final long timeToLiveMillis;
+
+    /**
+     * @param maxSize          the maximum number of copies to keep
+     * @param timeToLiveMillis the time in milliseconds a copy is kept for
+     */
+    NearCache(final int maxSize, final long timeToLiveMillis) {
+        this.maxSize = maxSize;
+        this.timeToLiveMillis = timeToLiveMillis;
+    }
+
+    /**
+     * @param key the key of the entry
+     * @return the copy of the entry, or {@code null} if there is no live copy
+     */
+    Value get(final Object key) {
+        final Copy copy = copies.get(key);
+        if (copy == null) {
+            statistics.miss();
+            return null;
+        }
+        if (copy.expirationTime <= System.currentTimeMillis()) {
+            copies.remove(key, copy);
+            statistics.miss();
+            return null;
+        }
+        statistics.hit();
+        return copy.value;
+    }
+
+    /**
+     * To be called before reading an entry from the IMap.
+     *
+     * @return the sequence to pass to {@link #put} along with the entry read
+     */
+    long beforeRead() {
+        return invalidationSequence.get();
+    }
+
+    /**
+     * Keeps a copy of an entry read from the IMap, unless it is not a {@link Value} or any entry was invalidated
+     * since the read started.
+     *
+     * @param key      the key of the entry
+     * @param entry    the entry read from the IMap
+     * @param sequence the sequence returned by {@link #beforeRead} before the read
+     */
+    void put(final Object key, final Expirable entry, final long sequence) {
+        if (!(entry instanceof Value) || invalidationSequence.get() != sequence) {
+            return;
+        }
+        if (copies.size() >= maxSize) {
+            evictOne();
+        }
+        final Copy copy = new Copy((Value) entry, System.currentTimeMillis() + timeToLiveMillis);
+        copies.put(key, copy);
+        // An invalidation may have slipped in between checking the sequence and adding the copy
+        if (invalidationSequence.get() != sequence) {
+            copies.remove(key, copy);
+        }
+    }
+
+    void invalidate(final Object key) {
+        invalidationSequence.incrementAndGet();
+        if (copies.remove(key) != null) {
+            statistics.invalidation();
+        }
+    }
+
+    void invalidateAll() {
+        invalidationSequence.incrementAndGet();
+        if (!copies.isEmpty()) {
+            copies.clear();
+            statistics.invalidation();
+        }
+    }
+
+    int size() {
+        return copies.size();
+    }
+
+    NearCacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public void entryAdded(final EntryEvent<Object, Object> event) {
+        invalidate(event.getKey());
+    }
+
+    @Override
+    public void entryUpdated(final EntryEvent<Object, Object> event) {
+        invalidate(event.getKey());
+    }
+
+    @Override
+    public void entryRemoved(final EntryEvent<Object, Object> event) {
+        invalidate(event.getKey());
+    }
+
+    @Override
+    public void entryEvicted(final EntryEvent<Object, Object> event) {
+        invalidate(event.getKey());
+    }
+
+    @Override
+    public void entryExpired(final EntryEvent<Object, Object> event) {
+        invalidate(event.getKey());
+    }
+
+    @Override
+    public void entryMerged(final EntryEvent<Object, Object> event) {
+        invalidate(event.getKey());
+    }
+
+    @Override
+    public void mapCleared(final MapEvent event) {
+        invalidateAll();
+    }
+
+    @Override
+    public void mapEvicted(final MapEvent event) {
+        invalidateAll();
+    }
+
+    private void evictOne() {
+        final Iterator<Copy> iterator = copies.values().iterator();
+        if (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            statistics.eviction();
+        }
+    }
+
+    private static final class Copy {
+
+        private final Value value;
+        private final long expirationTime;
+
+        Copy(final Value value, final long expirationTime) {
+            this.value = value;
+            this.expirationTime = expirationTime;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.distributed;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics about the near cache of an {@link IMapRegionCache}.
+ */
+public final class NearCacheStatistics {
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+    void miss() {
+        misses.incrementAndGet();
+    }
+
+    void invalidation() {
+        invalidations.incrementAndGet();
+    }
+
+    void eviction() {
+        evictions.incrementAndGet();
+    }
+
+    /**
+     * @return the number of reads served from the near cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of reads which had to be served from the IMap
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of times a copy, or all of them when the region was cleared, was invalidated
+     */
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * @return the number of copies dropped to make room for others
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "NearCacheStatistics{hits=" + hits.get()
+                + ", misses=" + misses.get()
+                + ", invalidations=" + invalidations.get()
+                + ", evictions=" + evictions.get()
+                + '}';
+    }
+}
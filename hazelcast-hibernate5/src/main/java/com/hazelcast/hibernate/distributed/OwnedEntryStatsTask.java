@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.distributed;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceAware;
+import com.hazelcast.hibernate.serialization.HibernateDataSerializerHook;
+import com.hazelcast.monitor.LocalMapStats;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+/**
+ * A task which returns the number and the memory cost of the entries of an IMap owned by the member it runs on,
+ * so both are known for all entries after running it once on each member instead of reading each entry or
+ * partition.
+ * <p/>
+ * Both are {@link #UNKNOWN} if statistics are disabled for the IMap on the member, as its local map statistics
+ * are empty then.
+ */
+public class OwnedEntryStatsTask implements Callable<long[]>, IdentifiedDataSerializable, HazelcastInstanceAware {
+
+    /**
+     * The index of the number of owned entries in the result
+     */
+    public static final int ENTRY_COUNT = 0;
+    /**
+     * The index of the memory cost of owned entries in the result
+     */
+    public static final int MEMORY_COST = 1;
+    /**
+     * The value of the result if the statistics of the IMap are disabled
+     */
+    public static final long UNKNOWN = -1;
+
+    private String mapName;
+    private transient HazelcastInstance hazelcastInstance;
+
+    public OwnedEntryStatsTask() {
+    }
+
+    public OwnedEntryStatsTask(final String mapName) {
+        this.mapName = mapName;
+    }
+
+    @Override
+    public long[] call() {
+        final long[] result = new long[2];
+        if (!hazelcastInstance.getConfig().findMapConfig(mapName).isStatisticsEnabled()) {
+            result[ENTRY_COUNT] = UNKNOWN;
+            result[MEMORY_COST] = UNKNOWN;
+            return result;
+        }
+        final LocalMapStats stats = hazelcastInstance.getMap(mapName).getLocalMapStats();
+        result[ENTRY_COUNT] = stats.getOwnedEntryCount();
+        result[MEMORY_COST] = stats.getOwnedEntryMemoryCost();
+        return result;
+    }
+
+    @Override
+    public void setHazelcastInstance(final HazelcastInstance hazelcastInstance) {
+        this.hazelcastInstance = hazelcastInstance;
+    }
+
+    @Override
+    public void writeData(final ObjectDataOutput out) throws IOException {
+        out.writeUTF(mapName);
+    }
+
+    @Override
+    public void readData(final ObjectDataInput in) throws IOException {
+        mapName = in.readUTF();
+    }
+
+    @Override
+    public int getFactoryId() {
+        return HibernateDataSerializerHook.F_ID;
+    }
+
+    @Override
+    public int getId() {
+        return HibernateDataSerializerHook.OWNED_ENTRY_STATS;
+    }
+}
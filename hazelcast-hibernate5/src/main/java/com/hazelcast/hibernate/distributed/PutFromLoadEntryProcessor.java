@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.hibernate.distributed;
+
+import com.hazelcast.hibernate.serialization.Expirable;
+import com.hazelcast.hibernate.serialization.HibernateDataSerializerHook;
+import com.hazelcast.hibernate.serialization.Value;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Map;
+
+/**
+ * A concrete implementation of {@link com.hazelcast.map.EntryProcessor} which puts a value loaded from the database
+ * into a region cache, unless the cached entry is newer
+ * <p/>
+ * The version comparator is referred to by its {@link VersionComparators} type id, so the decision is taken on the
+ * partition owner in a single round trip.
+ */
+// Serialized as IdentifiedDataSerializable only, EntryProcessor extends Serializable for legacy reasons
+@SuppressWarnings("serial")
+public class PutFromLoadEntryProcessor extends AbstractRegionCacheEntryProcessor {
+
+    private Object value;
+    private Object version;
+    private long txTimestamp;
+    private int comparatorTypeId;
+
+    public PutFromLoadEntryProcessor() {
+    }
+
+    public PutFromLoadEntryProcessor(final Object value, final Object version, final long txTimestamp,
+                                     final int comparatorTypeId) {
+        this.value = value;
+        this.version = version;
+        this.txTimestamp = txTimestamp;
+        this.comparatorTypeId = comparatorTypeId;
+    }
+
+    @Override
+    public Boolean process(final Map.Entry<Object, Expirable> entry) {
+        final Expirable previous = entry.getValue();
+        if (previous != null) {
+            final Comparator<?> versionComparator = VersionComparators.get(comparatorTypeId);
+            if (versionComparator == null && comparatorTypeId != VersionComparators.NONE) {
+                // The comparator is not registered on this member, leave the entry as is
+                return false;
+            }
+            if (!previous.isReplaceableBy(txTimestamp, version, versionComparator)) {
+                return false;
+            }
+        }
+        entry.setValue(new Value(version, txTimestamp, value));
+        return true;
+    }
+
+    @Override
+    public void writeData(final ObjectDataOutput out) throws IOException {
+        out.writeObject(value);
+        out.writeObject(version);
+        out.writeLong(txTimestamp);
+        out.writeInt(comparatorTypeId);
+    }
+
+    @Override
+    public void readData(final ObjectDataInput in) throws IOException {
+        value = in.readObject();
+        version = in.readObject();
+        txTimestamp = in.readLong();
+        comparatorTypeId = in.readInt();
+    }
+
+    @Override
+    public int getId() {
+        return HibernateDataSerializerHook.PUT_FROM_LOAD;
+    }
+
+}
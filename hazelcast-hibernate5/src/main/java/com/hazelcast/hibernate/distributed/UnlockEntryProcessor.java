@@ -19,6 +19,7 @@ package com.hazelcast.hibernate.distributed;
 import com.hazelcast.hibernate.serialization.Expirable;
 import com.hazelcast.hibernate.serialization.ExpiryMarker;
 import com.hazelcast.hibernate.serialization.HibernateDataSerializerHook;
+import com.hazelcast.hibernate.serialization.Value;
 import com.hazelcast.nio.ObjectDataInput;
 import com.hazelcast.nio.ObjectDataOutput;
 
@@ -51,7 +52,7 @@ public class UnlockEntryProcessor extends AbstractRegionCacheEntryProcessor {
         if (expirable != null) {
             if (expirable.matches(lock)) {
                 expirable = ((ExpiryMarker) expirable).expire(timestamp);
-            } else if (expirable.getValue() != null) {
+            } else if (expirable instanceof Value) {
                 // It's a value. Expire the value immediately. This prevents
                 // in-flight transactions from adding stale values to the cache
                 expirable = new ExpiryMarker(null, timestamp, nextMarkerId).expire(timestamp);
@@ -75,7 +75,7 @@ public class UpdateEntryProcessor extends AbstractRegionCacheEntryProcessor {
                     expirable = new Value(newVersion, timestamp, newValue);
                     updated = true;
                 }
-            } else if (expirable.getValue() == null) {
+            } else if (!(expirable instanceof Value)) {
                 // It's a different marker, Leave it as is
                 return false;
             } else {
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.hibernate.distributed;
+
+import org.hibernate.internal.util.compare.ComparableComparator;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of version comparators, which lets entry processors refer to a version comparator by a type id instead
+ * of serializing it.
+ * <p/>
+ * Comparators for {@link Integer}, {@link Long}, {@link Short} and timestamp versions are built in; they are used
+ * for the natural ordering Hibernate applies to versions of these types. Other comparators can be registered with
+ * {@link #register(int, Comparator)}, which has to happen on every member of the cluster before entry processors
+ * referring to them are sent.
+ */
+public final class VersionComparators {
+
+    /**
+     * Type id for entities without versions.
+     */
+    public static final int NONE = 0;
+
+    /**
+     * Type id for {@link Integer} versions.
+     */
+    public static final int INTEGER = 1;
+
+    /**
+     * Type id for {@link Long} versions.
+     */
+    public static final int LONG = 2;
+
+    /**
+     * Type id for {@link Short} versions.
+     */
+    public static final int SHORT = 3;
+
+    /**
+     * Type id for timestamp versions, compared as {@link Date}s.
+     */
+    public static final int TIMESTAMP = 4;
+
+    /**
+     * Type id returned if no comparator is registered for a version.
+     */
+    public static final int UNKNOWN = -1;
+
+    private static final int BUILT_IN_TYPES = 5;
+
+    private static final ConcurrentMap<Integer, Comparator<?>> COMPARATORS = new ConcurrentHashMap<Integer, Comparator<?>>();
+    private static final ConcurrentMap<Comparator<?>, Integer> TYPE_IDS = new ConcurrentHashMap<Comparator<?>, Integer>();
+
+    static {
+        COMPARATORS.put(INTEGER, new NaturalOrder<Integer>());
+        COMPARATORS.put(LONG, new NaturalOrder<Long>());
+        COMPARATORS.put(SHORT, new NaturalOrder<Short>());
+        COMPARATORS.put(TIMESTAMP, new NaturalOrder<Date>());
+    }
+
+    private VersionComparators() {
+    }
+
+    /**
+     * Registers a version comparator.
+     *
+     * @param typeId     the type id to refer to the comparator by, which must not be one of the built-in ones
+     * @param comparator the comparator
+     * @throws IllegalArgumentException if the type id is taken by a built-in or another comparator
+     */
+    public static void register(final int typeId, final Comparator<?> comparator) {
+        if (typeId < BUILT_IN_TYPES) {
+            throw new IllegalArgumentException("Type id " + typeId + " is reserved for built-in comparators");
+        }
+        final Comparator<?> existing = COMPARATORS.putIfAbsent(typeId, comparator);
+        if (existing != null && !existing.equals(comparator)) {
+            throw new IllegalArgumentException("Type id " + typeId + " is already registered for " + existing);
+        }
+        TYPE_IDS.put(comparator, typeId);
+    }
+
+    /**
+     * @param comparator the comparator Hibernate uses for a version, or {@code null} for entities without versions
+     * @param version    the version
+     * @return the type id to refer to the comparator by, or {@link #UNKNOWN} if it is not registered
+     */
+    public static int getTypeId(final Comparator<?> comparator, final Object version) {
+        if (comparator == null) {
+            return NONE;
+        }
+        final Integer typeId = TYPE_IDS.get(comparator);
+        if (typeId != null) {
+            return typeId;
+        }
+        if (!(comparator instanceof ComparableComparator)) {
+            return UNKNOWN;
+        }
+        if (version instanceof Integer) {
+            return INTEGER;
+        } else if (version instanceof Long) {
+            return LONG;
+        } else if (version instanceof Short) {
+            return SHORT;
+        } else if (version instanceof Date) {
+            return TIMESTAMP;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * @param typeId the type id of a comparator
+     * @return the comparator, or {@code null} for {@link #NONE} or type ids which are not registered
+     */
+    public static Comparator<?> get(final int typeId) {
+        return COMPARATORS.get(typeId);
+    }
+
+    /**
+     * Compares versions by their natural ordering, like the comparators Hibernate uses for the built-in version types
+     *
+     * @param <T> the type of the versions
+     */
+    private static final class NaturalOrder<T extends Comparable<? super T>> implements Comparator<T>, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int compare(final T o1, final T o2) {
+            return o1.compareTo(o2);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.hibernate.local;
+
+import com.hazelcast.instance.OutOfMemoryErrorDispatcher;
+import com.hazelcast.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the cleanups of all local region caches of the JVM on a single thread, shared by all {@link CleanupService}s.
+ * <p/>
+ * Rather than scheduling a task per cache, a pass runs every {@link #PASS_INTERVAL} milliseconds. Each pass removes
+ * the expired entries of the caches, then cleans up the caches which are due: those whose fixed delay has passed
+ * since their last cleanup and those exceeding their maximum size. Due caches are cleaned up in order of pressure,
+ * which adds up how far they exceed their maximum size, the share of entries their last cleanup removed and how
+ * overdue they are.
+ * <p/>
+ * The work of a pass is bounded by {@link #PASS_BUDGET} milliseconds. Caches expire and clean up in steps handling at
+ * most {@link #STEP_SIZE} entries, and the budget is checked before each step. Expiry may take half of the budget,
+ * going round the caches from the one the last pass stopped at, and cleanups take the rest in order of pressure.
+ * Each pass takes at least one step of each, so that neither can be starved. Work left over is carried on by the
+ * next pass: its expiry starts with the cache this pass did not get to, and a cache still exceeding its maximum size
+ * remains due.
+ * <p/>
+ * The scheduler is reference counted and shut down when the last service using it is stopped.
+ */
+final class CleanupScheduler {
+
+    /**
+     * Time in milliseconds between two passes.
+     */
+    static final long PASS_INTERVAL = 1000L;
+
+    /**
+     * Time in milliseconds after which a pass stops cleaning up caches.
+     */
+    static final long PASS_BUDGET = 100L;
+
+    /**
+     * Number of entries a cache handles in one step of expiry or cleanup.
+     */
+    static final int STEP_SIZE = 1000;
+
+    private static final Comparator<RegionCleanup> BY_PRESSURE = new Comparator<RegionCleanup>() {
+        @Override
+        public int compare(final RegionCleanup o1, final RegionCleanup o2) {
+            return Float.compare(o2.pressure, o1.pressure);
+        }
+    };
+
+    private static CleanupScheduler shared;
+    private static int references;
+
+    private final long passBudgetNanos;
+    private final ScheduledExecutorService executor;
+    private final List<RegionCleanup> regions = new CopyOnWriteArrayList<RegionCleanup>();
+    // Only accessed by the cleanup thread
+    private int expiryCursor;
+
+    /**
+     * @param passBudget the time in milliseconds after which a pass stops cleaning up caches
+     */
+    CleanupScheduler(final long passBudget) {
+        this.passBudgetNanos = TimeUnit.MILLISECONDS.toNanos(passBudget);
+        executor = Executors.newSingleThreadScheduledExecutor(new CleanupThreadFactory());
+    }
+
+    /**
+     * @return the shared scheduler, started if it is not running yet
+     */
+    static synchronized CleanupScheduler acquire() {
+        if (shared == null) {
+            shared = new CleanupScheduler(PASS_BUDGET);
+            shared.start();
+        }
+        references++;
+        return shared;
+    }
+
+    /**
+     * Releases the shared scheduler, shutting it down if it is no longer used.
+     */
+    static synchronized void release() {
+        if (--references == 0) {
+            shared.shutdown();
+            shared = null;
+        }
+    }
+
+    /**
+     * @param cache      the cache to clean up
+     * @param fixedDelay the maximum time in nanoseconds between two cleanups of the cache
+     */
+    void register(final LocalRegionCache cache, final long fixedDelay) {
+        regions.add(new RegionCleanup(cache, fixedDelay, System.nanoTime()));
+    }
+
+    void deregister(final LocalRegionCache cache) {
+        for (final RegionCleanup region : regions) {
+            if (region.cache == cache) {
+                regions.remove(region);
+            }
+        }
+    }
+
+    ScheduledFuture<?> scheduleAtFixedRate(final Runnable task, final long period) {
+        return executor.scheduleAtFixedRate(task, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    void runPass() {
+        final long start = System.nanoTime();
+        final List<RegionCleanup> snapshot = new ArrayList<RegionCleanup>(regions);
+        if (snapshot.isEmpty()) {
+            return;
+        }
+        expire(snapshot, start);
+
+        final List<RegionCleanup> due = new ArrayList<RegionCleanup>();
+        for (final RegionCleanup region : snapshot) {
+            if (region.updatePressure(start)) {
+                due.add(region);
+            }
+        }
+        Collections.sort(due, BY_PRESSURE);
+        for (final RegionCleanup region : due) {
+            if (region != due.get(0) && System.nanoTime() - start >= passBudgetNanos) {
+                break;
+            }
+            region.cleanup();
+        }
+    }
+
+    /**
+     * Steps the expiry of the caches round robin, until all caught up or half of the budget is spent.
+     */
+    private void expire(final List<RegionCleanup> snapshot, final long start) {
+        final int count = snapshot.size();
+        final List<RegionCleanup> behind = new ArrayList<RegionCleanup>(count);
+        for (int i = 0; i < count; i++) {
+            behind.add(snapshot.get((expiryCursor + i) % count));
+        }
+        boolean first = true;
+        while (!behind.isEmpty()) {
+            final Iterator<RegionCleanup> iterator = behind.iterator();
+            while (iterator.hasNext()) {
+                final RegionCleanup region = iterator.next();
+                if (!first && System.nanoTime() - start >= passBudgetNanos / 2) {
+                    // The next pass starts with the cache this one did not get to
+                    expiryCursor = snapshot.indexOf(region);
+                    return;
+                }
+                first = false;
+                if (region.cache.expire(STEP_SIZE)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void start() {
+        executor.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    runPass();
+                } catch (RuntimeException e) {
+                    // Keep cleaning up on later passes
+                    Logger.getLogger(CleanupScheduler.class).warning("Cleanup of local region caches failed", e);
+                }
+            }
+        }, PASS_INTERVAL, PASS_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The cleanup state of a cache, only accessed by the cleanup thread once registered
+     */
+    private static final class RegionCleanup {
+
+        private final LocalRegionCache cache;
+        private final long fixedDelay;
+        private long lastCleanup;
+        private float removedRatio;
+        private float pressure;
+
+        private RegionCleanup(final LocalRegionCache cache, final long fixedDelay, final long now) {
+            this.cache = cache;
+            this.fixedDelay = fixedDelay;
+            this.lastCleanup = now;
+        }
+
+        /**
+         * @return {@code true} if the cache is due for a cleanup
+         */
+        private boolean updatePressure(final long now) {
+            final float overdue = fixedDelay > 0 ? (float) (now - lastCleanup) / fixedDelay : 1F;
+            final float sizePressure = cache.getSizePressure();
+            pressure = sizePressure + removedRatio + overdue;
+            return overdue >= 1F || sizePressure > 1F;
+        }
+
+        private void cleanup() {
+            final int size = cache.getEntryCount();
+            final long start = System.nanoTime();
+            final int removed = cache.cleanup(STEP_SIZE);
+            lastCleanup = System.nanoTime();
+            removedRatio = size > 0 ? (float) removed / size : 0F;
+            cache.getCleanupStatistics().record(lastCleanup - start, removed);
+        }
+    }
+
+    /**
+     * Internal ThreadFactory to create cleanup threads
+     */
+    private static final class CleanupThreadFactory implements ThreadFactory {
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new CleanupThread(r, "hz.hibernate.cleanup");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Runnable thread adapter to capture exceptions and notify Hazelcast about them
+     */
+    private static final class CleanupThread extends Thread {
+
+        private CleanupThread(final Runnable target, final String name) {
+            super(target, name);
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } catch (OutOfMemoryError e) {
+                OutOfMemoryErrorDispatcher.onOutOfMemory(e);
+            }
+        }
+    }
+}
@@ -16,27 +16,30 @@
 
 package com.hazelcast.hibernate.local;
 
-
-import com.hazelcast.instance.OutOfMemoryErrorDispatcher;
-
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
  * An internal service to clean cache regions
+ * <p/>
+ * The cleanups run on the {@link CleanupScheduler} shared by all services of the JVM.
  */
 public final class CleanupService {
 
     /**
      * Default fixed delay in seconds for scheduled job.
      */
-    private static final long DEFAULT_FIXED_DELAY = 60L;
+    public static final long DEFAULT_FIXED_DELAY = 60L;
 
     private final long fixedDelay;
-    private final String name;
-    private final ScheduledExecutorService executor;
+    private final long invalidationBatchWindow;
+    private final CleanupScheduler scheduler;
+    private final List<LocalRegionCache> caches = new CopyOnWriteArrayList<LocalRegionCache>();
+    private final List<LocalRegionCache> batchingCaches = new CopyOnWriteArrayList<LocalRegionCache>();
+    private final ScheduledFuture<?> flushTask;
+    private boolean stopped;
 
     public CleanupService(final String name) {
         this(name, DEFAULT_FIXED_DELAY);
@@ -46,54 +49,65 @@ public final class CleanupService {
      * Visible for testing only.
      */
     public CleanupService(final String name, final long fixedDelay) {
-        this.fixedDelay = fixedDelay;
-        this.name = name;
-        executor = Executors.newSingleThreadScheduledExecutor(new CleanupThreadFactory());
-    }
-
-    public void registerCache(final LocalRegionCache cache) {
-        executor.scheduleWithFixedDelay(new Runnable() {
-
-            @Override
-            public void run() {
-                cache.cleanup();
-            }
-        }, fixedDelay, fixedDelay, TimeUnit.SECONDS);
-    }
-
-    public void stop() {
-        executor.shutdownNow();
+        this(name, fixedDelay, 0);
     }
 
     /**
-     * Internal ThreadFactory to create cleanup threads
+     * @param name                    the name of the service; the cleanup thread is shared by all services
+     * @param fixedDelay              the maximum delay in seconds between two cleanups of a cache
+     * @param invalidationBatchWindow the time in milliseconds invalidations of a cache are collected before they are
+     *                                published as one batch, or {@code 0} to publish each invalidation immediately
      */
-    private class CleanupThreadFactory implements ThreadFactory {
+    public CleanupService(final String name, final long fixedDelay, final long invalidationBatchWindow) {
+        this.fixedDelay = fixedDelay;
+        this.invalidationBatchWindow = invalidationBatchWindow;
+        scheduler = CleanupScheduler.acquire();
+        if (invalidationBatchWindow > 0) {
+            flushTask = scheduler.scheduleAtFixedRate(new Runnable() {
+
+                @Override
+                public void run() {
+                    flushInvalidations();
+                }
+            }, invalidationBatchWindow);
+        } else {
+            flushTask = null;
+        }
+    }
 
-        @Override
-        public Thread newThread(final Runnable r) {
-            final Thread thread = new CleanupThread(r, name + ".hibernate.cleanup");
-            thread.setDaemon(true);
-            return thread;
+    public void registerCache(final LocalRegionCache cache) {
+        cache.enableExpiry(CleanupScheduler.PASS_INTERVAL);
+        if (invalidationBatchWindow > 0) {
+            cache.enableInvalidationBatching();
+            batchingCaches.add(cache);
         }
+        caches.add(cache);
+        scheduler.register(cache, TimeUnit.SECONDS.toNanos(fixedDelay));
     }
 
     /**
-     * Runnable thread adapter to capture exceptions and notify Hazelcast about them
+     * Stops the service, publishing the invalidations still collected.
      */
-    private static final class CleanupThread extends Thread {
-
-        private CleanupThread(final Runnable target, final String name) {
-            super(target, name);
+    public void stop() {
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+        }
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        for (final LocalRegionCache cache : caches) {
+            scheduler.deregister(cache);
         }
+        CleanupScheduler.release();
+        flushInvalidations();
+    }
 
-        @Override
-        public void run() {
-            try {
-                super.run();
-            } catch (OutOfMemoryError e) {
-                OutOfMemoryErrorDispatcher.onOutOfMemory(e);
-            }
+    private void flushInvalidations() {
+        for (final LocalRegionCache cache : batchingCaches) {
+            cache.flushInvalidations();
         }
     }
 }
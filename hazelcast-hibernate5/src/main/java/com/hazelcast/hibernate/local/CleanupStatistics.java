@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.hibernate.local;
+
+/**
+ * Statistics about the cleanups of a local region cache, which remove its expired entries and evict entries
+ * beyond its maximum size.
+ */
+public final class CleanupStatistics {
+
+    private long cleanupCount;
+    private long lastDuration;
+    private long maxDuration;
+    private long totalDuration;
+    private int lastRemovedEntries;
+
+    synchronized void record(final long duration, final int removedEntries) {
+        cleanupCount++;
+        lastDuration = duration;
+        maxDuration = Math.max(maxDuration, duration);
+        totalDuration += duration;
+        lastRemovedEntries = removedEntries;
+    }
+
+    /**
+     * @return the number of cleanups run
+     */
+    public synchronized long getCleanupCount() {
+        return cleanupCount;
+    }
+
+    /**
+     * @return the duration of the last cleanup in nanoseconds
+     */
+    public synchronized long getLastDurationNanos() {
+        return lastDuration;
+    }
+
+    /**
+     * @return the duration of the longest cleanup in nanoseconds
+     */
+    public synchronized long getMaxDurationNanos() {
+        return maxDuration;
+    }
+
+    /**
+     * @return the average duration of the cleanups in nanoseconds
+     */
+    public synchronized long getAverageDurationNanos() {
+        return cleanupCount == 0 ? 0 : totalDuration / cleanupCount;
+    }
+
+    /**
+     * @return the number of entries the last cleanup removed
+     */
+    public synchronized int getLastRemovedEntries() {
+        return lastRemovedEntries;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CleanupStatistics{cleanupCount=" + cleanupCount
+                + ", lastDurationNanos=" + lastDuration
+                + ", maxDurationNanos=" + maxDuration
+                + ", averageDurationNanos=" + getAverageDurationNanos()
+                + ", lastRemovedEntries=" + lastRemovedEntries
+                + '}';
+    }
+}
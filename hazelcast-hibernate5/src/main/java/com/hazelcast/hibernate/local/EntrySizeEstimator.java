@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.local;
+
+import com.hazelcast.hibernate.serialization.Expirable;
+import com.hazelcast.hibernate.serialization.ExpiryMarker;
+import com.hazelcast.hibernate.serialization.Value;
+import org.hibernate.cache.spi.entry.CacheEntry;
+import org.hibernate.cache.spi.entry.CollectionCacheEntry;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+
+/**
+ * Estimates the heap retained by a local region cache entry.
+ * <p/>
+ * The estimate assumes a 64-bit JVM with compressed references. It walks the {@link Value} wrapper, the
+ * disassembled state of {@link CacheEntry} and {@link CollectionCacheEntry} instances and the types Hibernate
+ * commonly disassembles properties to; any other object is accounted with a fixed size. Estimates only depend on
+ * the estimated objects, so an entry is accounted with the same size when it is added and when it is removed.
+ */
+@SuppressWarnings("checkstyle:magicnumber")
+class EntrySizeEstimator {
+
+    /**
+     * Size accounted for objects of unknown types.
+     */
+    static final int DEFAULT_OBJECT_SIZE = 64;
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int ALIGNMENT = 8;
+    private static final int MAX_DEPTH = 4;
+
+    // Node of the backing map (header, hash, key, value, next) plus its slot in the table
+    private static final int MAP_ENTRY = 36;
+    private static final long VALUE = align(OBJECT_HEADER + REFERENCE + 8 + REFERENCE);
+    private static final long EXPIRY_MARKER = align(OBJECT_HEADER + REFERENCE + 8 + REFERENCE + 4 + 8 + 1);
+    // Marker ids are short decimal counters
+    private static final long MARKER_ID = align(OBJECT_HEADER + REFERENCE + 4) + align(ARRAY_HEADER + 2 * 8);
+    private static final long CACHE_ENTRY = align(OBJECT_HEADER + 4 * REFERENCE);
+    private static final long STRING = align(OBJECT_HEADER + REFERENCE + 4);
+
+    /**
+     * @param key   the cached key
+     * @param entry the cached entry
+     * @return the estimated number of bytes retained by the key and the entry within the cache
+     */
+    long estimate(final Object key, final Expirable entry) {
+        long size = MAP_ENTRY + sizeOf(key, 0);
+        if (entry instanceof Value) {
+            size += VALUE + sizeOf(entry.getVersion(), 0) + sizeOf(entry.getValue(), 0);
+        } else if (entry instanceof ExpiryMarker) {
+            size += EXPIRY_MARKER + MARKER_ID + sizeOf(entry.getVersion(), 0);
+        } else if (entry != null) {
+            size += DEFAULT_OBJECT_SIZE;
+        }
+        return size;
+    }
+
+    /**
+     * @param object the object to estimate, may be {@code null}
+     * @param depth  the number of objects this object is nested in, used to stop descending into deep graphs
+     * @return the estimated number of bytes retained by the object
+     */
+    long sizeOf(final Object object, final int depth) {
+        if (object == null) {
+            return 0;
+        }
+        if (object instanceof String) {
+            return STRING + align(ARRAY_HEADER + 2L * ((String) object).length());
+        }
+        if (object instanceof Long || object instanceof Double || object instanceof Date) {
+            return align(OBJECT_HEADER + 8);
+        }
+        if (object instanceof Number || object instanceof Boolean || object instanceof Character) {
+            return object instanceof BigDecimal || object instanceof BigInteger
+                    ? DEFAULT_OBJECT_SIZE : align(OBJECT_HEADER + 4);
+        }
+        if (object instanceof byte[]) {
+            return align(ARRAY_HEADER + (long) ((byte[]) object).length);
+        }
+        if (object instanceof char[]) {
+            return align(ARRAY_HEADER + 2L * ((char[]) object).length);
+        }
+        if (depth >= MAX_DEPTH) {
+            return DEFAULT_OBJECT_SIZE;
+        }
+        if (object instanceof Object[]) {
+            return sizeOfArray((Object[]) object, depth + 1);
+        }
+        if (object instanceof CacheEntry) {
+            final CacheEntry entry = (CacheEntry) object;
+            // The subclass name is shared with the entity persister
+            return CACHE_ENTRY + sizeOf(entry.getVersion(), depth + 1)
+                    + sizeOf(entry.getDisassembledState(), depth + 1);
+        }
+        if (object instanceof CollectionCacheEntry) {
+            return align(OBJECT_HEADER + REFERENCE) + sizeOf(((CollectionCacheEntry) object).getState(), depth + 1);
+        }
+        return DEFAULT_OBJECT_SIZE;
+    }
+
+    private long sizeOfArray(final Object[] array, final int depth) {
+        long size = align(ARRAY_HEADER + (long) REFERENCE * array.length);
+        for (final Object element : array) {
+            size += sizeOf(element, depth);
+        }
+        return size;
+    }
+
+    private static long align(final long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+}
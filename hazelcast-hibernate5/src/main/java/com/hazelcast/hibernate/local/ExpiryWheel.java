@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.hibernate.local;
+
+import com.hazelcast.hibernate.serialization.Expirable;
+import com.hazelcast.hibernate.serialization.Value;
+
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Hierarchical timing wheel removing the entries of a local region cache once their time to live has passed.
+ * <p/>
+ * Time is divided into ticks. Each of the {@link #LEVELS} wheels has {@link #SLOTS} slots, a slot of level
+ * {@code n} spanning {@code SLOTS^n} ticks. A key is filed into the lowest level whose range covers its deadline,
+ * and is moved down a level whenever the higher level slot it is filed in comes up. Advancing the wheel therefore
+ * only touches the keys which are due or move down, rather than every cached entry. Deadlines beyond the range
+ * of the highest level are filed into its last slot and refiled when it comes up.
+ * <p/>
+ * A key is scheduled at most once. Writes to a key which is scheduled already do not schedule it again; the deadline
+ * is taken from the entry when the key comes up instead. A due key whose entry is still a {@link Value} with time
+ * left to live is refiled at the deadline of that value, and only removed once its time to live has passed.
+ * <p/>
+ * The wheel may be advanced a limited number of keys at a time. A call which reaches its limit stops where it is,
+ * even within a tick, and the next call carries on from there.
+ * <p/>
+ * {@link #schedule(Object, Value)} may be called by any thread; the keys are handed over through a queue. All
+ * other methods are meant to be called by the {@link CleanupService} thread only.
+ */
+final class ExpiryWheel {
+
+    static final int LEVELS = 4;
+    static final int SLOTS = 64;
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private final ConcurrentMap<Object, Expirable> cache;
+    private final long timeToLive;
+    private final long tickMillis;
+    private final Queue<Node> scheduled = new ConcurrentLinkedQueue<Node>();
+    private final Set<Object> pending = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+    private final Node[][] wheels = new Node[LEVELS][SLOTS];
+    private long currentTick = -1;
+    // The progress within the current tick: the next level to take a slot of, or -1 once the tick is done
+    private int nextLevel = -1;
+    private Node cascading;
+    private Node due;
+    private boolean behind;
+
+    /**
+     * @param cache      the cache whose entries expire
+     * @param timeToLive the time to live of the entries in milliseconds
+     * @param tickMillis the length of a tick in milliseconds, which bounds how late entries are removed
+     */
+    ExpiryWheel(final ConcurrentMap<Object, Expirable> cache, final long timeToLive, final long tickMillis) {
+        this.cache = cache;
+        this.timeToLive = timeToLive;
+        this.tickMillis = tickMillis;
+    }
+
+    /**
+     * Schedules the removal of a key once the time to live of the value written for it has passed.
+     *
+     * @param key   the key
+     * @param value the value written for the key
+     */
+    void schedule(final Object key, final Value value) {
+        if (pending.add(key)) {
+            scheduled.offer(new Node(key, deadlineOf(value)));
+        }
+    }
+
+    /**
+     * @return the number of keys scheduled
+     */
+    int size() {
+        return pending.size();
+    }
+
+    /**
+     * Advances the wheel to the given time, removing the entries which expired meanwhile.
+     *
+     * @param now the current timestamp
+     * @return the number of entries removed
+     */
+    int advance(final long now) {
+        return advance(now, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Advances the wheel towards the given time, handling at most the given number of keys.
+     *
+     * @param now   the current timestamp
+     * @param limit the maximum number of keys to hand over, move down or expire
+     * @return the number of entries removed
+     */
+    int advance(final long now, final int limit) {
+        final long nowTick = now / tickMillis;
+        if (currentTick < 0) {
+            currentTick = nowTick;
+        }
+        int work = 0;
+        Node node;
+        while (work < limit && (node = scheduled.poll()) != null) {
+            // Keys due already are removed on the next tick
+            file(node, Math.max(node.deadline, currentTick + 1));
+            work++;
+        }
+
+        int removed = 0;
+        while (work < limit) {
+            if (cascading != null) {
+                node = cascading;
+                cascading = node.next;
+                file(node, node.deadline);
+                work++;
+            } else if (due != null) {
+                node = due;
+                due = node.next;
+                removed += expire(node, now);
+                work++;
+            } else if (nextLevel > 0) {
+                // Cascade top down, higher level keys may move down into a slot which comes up on this tick as well
+                if ((currentTick & ((1L << (SLOT_BITS * nextLevel)) - 1)) == 0) {
+                    cascading = takeSlot(nextLevel);
+                }
+                nextLevel--;
+            } else if (nextLevel == 0) {
+                due = takeSlot(0);
+                nextLevel = -1;
+            } else if (currentTick < nowTick) {
+                currentTick++;
+                nextLevel = LEVELS - 1;
+            } else {
+                break;
+            }
+        }
+        behind = work >= limit;
+        return removed;
+    }
+
+    /**
+     * @return {@code true} if the last advance stopped at its limit, so there may be work left
+     */
+    boolean isBehind() {
+        return behind;
+    }
+
+    private Node takeSlot(final int level) {
+        final int slot = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        final Node head = wheels[level][slot];
+        wheels[level][slot] = null;
+        return head;
+    }
+
+    private void file(final Node node, final long deadline) {
+        final long delta = deadline - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        final long tick = Math.min(deadline, currentTick + (1L << (SLOT_BITS * LEVELS)) - 1);
+        final int slot = (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        node.deadline = deadline;
+        node.next = wheels[level][slot];
+        wheels[level][slot] = node;
+    }
+
+    private int expire(final Node node, final long now) {
+        final Object key = node.key;
+        final Expirable expirable = cache.get(key);
+        if (expirable instanceof Value && ((Value) expirable).getTimestamp() + timeToLive >= now) {
+            // Written again since the key was scheduled
+            file(node, Math.max(deadlineOf((Value) expirable), currentTick + 1));
+            return 0;
+        }
+        final int removed = expirable instanceof Value && cache.remove(key, expirable) ? 1 : 0;
+        pending.remove(key);
+        // A value written before the key was released did not schedule it again
+        final Expirable current = cache.get(key);
+        if (current instanceof Value && pending.add(key)) {
+            file(node, Math.max(deadlineOf((Value) current), currentTick + 1));
+        }
+        return removed;
+    }
+
+    /**
+     * @return the first tick starting after the time to live of the value has passed
+     */
+    private long deadlineOf(final Value value) {
+        return (value.getTimestamp() + timeToLive) / tickMillis + 1;
+    }
+
+    /**
+     * A scheduled key, linked to the next key filed in the same slot
+     */
+    private static final class Node {
+
+        private final Object key;
+        private long deadline;
+        private Node next;
+
+        private Node(final Object key, final long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.local;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Count-Min sketch estimating how often keys have been accessed recently.
+ * <p/>
+ * The sketch has one row of 4-bit counters per hash function, packed sixteen to a {@code long}. A key maps to one
+ * counter in each row, chosen by double hashing of its spread hash code, and its frequency is the smallest of
+ * those counters. An access only raises the counters of the key which are at that minimum, which keeps keys
+ * sharing counters with popular keys from being overestimated. Each row holds four counters per entry of the cache
+ * capacity. Each time ten times as many accesses as the capacity have been recorded, all counters are halved, so
+ * the estimates favour recent popularity over historical popularity.
+ * <p/>
+ * The sketch is updated from the read path without a lock. Each counter is raised with a compare-and-set of its
+ * word, which only succeeds if the counter is still below 15 and still at the minimum, so concurrent increments can
+ * neither carry a counter into its neighbour nor raise it twice for one access. Halving also replaces each word
+ * with a compare-and-set, and only the thread which resets the number of additions halves the counters.
+ */
+@SuppressWarnings("checkstyle:magicnumber")
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int COUNTERS_PER_KEY = 4;
+    private static final int COUNTERS_PER_WORD = 16;
+    private static final int COUNTER_BITS = 4;
+    private static final long COUNTER_MASK = 0xfL;
+    private static final long HALVING_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNTERS = 1 << 30;
+    private static final int SAMPLE_FACTOR = 10;
+
+    private final AtomicLongArray[] rows;
+    private final int counterMask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    FrequencySketch(final int maximumSize) {
+        final long wanted = (long) Math.max(maximumSize, 1) * COUNTERS_PER_KEY;
+        final int counters = Math.max(COUNTERS_PER_WORD, ceilingPowerOfTwo((int) Math.min(wanted, MAX_COUNTERS)));
+        rows = new AtomicLongArray[DEPTH];
+        for (int row = 0; row < DEPTH; row++) {
+            rows[row] = new AtomicLongArray(counters / COUNTERS_PER_WORD);
+        }
+        counterMask = counters - 1;
+        sampleSize = maximumSize > Integer.MAX_VALUE / SAMPLE_FACTOR ? Integer.MAX_VALUE : SAMPLE_FACTOR * maximumSize;
+    }
+
+    /**
+     * @param key the key to look up
+     * @return the estimated number of recent accesses of the key, between 0 and 15
+     */
+    int frequency(final Object key) {
+        final long hash = mix(key.hashCode());
+        int frequency = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, count(row, counterOf(hash, row)));
+        }
+        return frequency;
+    }
+
+    /**
+     * Records an access of the key, periodically aging all counters.
+     *
+     * @param key the key which was accessed
+     */
+    void increment(final Object key) {
+        final long hash = mix(key.hashCode());
+        int minimum = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            minimum = Math.min(minimum, count(row, counterOf(hash, row)));
+        }
+        if (minimum == COUNTER_MASK) {
+            return;
+        }
+        // Conservative update: only the counters at the minimum are raised, the others already overestimate
+        for (int row = 0; row < DEPTH; row++) {
+            incrementAt(rows[row], counterOf(hash, row), minimum);
+        }
+        if (additions.incrementAndGet() >= sampleSize && additions.getAndSet(0) >= sampleSize) {
+            halve();
+        }
+    }
+
+    /**
+     * @return the sum of all counters
+     */
+    long sumOfCounters() {
+        long sum = 0;
+        for (final AtomicLongArray words : rows) {
+            for (int i = 0; i < words.length(); i++) {
+                final long word = words.get(i);
+                for (int counter = 0; counter < COUNTERS_PER_WORD; counter++) {
+                    sum += (word >>> (counter * COUNTER_BITS)) & COUNTER_MASK;
+                }
+            }
+        }
+        return sum;
+    }
+
+    private int count(final int row, final int counter) {
+        return (int) ((rows[row].get(counter / COUNTERS_PER_WORD) >>> shiftOf(counter)) & COUNTER_MASK);
+    }
+
+    /**
+     * Raises the counter if it is still at the minimum, which also keeps it from passing 15.
+     */
+    private static void incrementAt(final AtomicLongArray words, final int counter, final int minimum) {
+        final int index = counter / COUNTERS_PER_WORD;
+        final int shift = shiftOf(counter);
+        while (true) {
+            final long word = words.get(index);
+            if (((word >>> shift) & COUNTER_MASK) != minimum
+                    || words.compareAndSet(index, word, word + (1L << shift))) {
+                return;
+            }
+        }
+    }
+
+    private void halve() {
+        for (final AtomicLongArray words : rows) {
+            for (int i = 0; i < words.length(); i++) {
+                long word;
+                do {
+                    word = words.get(i);
+                } while (!words.compareAndSet(i, word, (word >>> 1) & HALVING_MASK));
+            }
+        }
+    }
+
+    private int counterOf(final long hash, final int row) {
+        // Double hashing: the two halves of the mixed hash give a distinct counter for each row
+        final int first = (int) hash;
+        final int second = (int) (hash >>> 32) | 1;
+        return (first + row * second) & counterMask;
+    }
+
+    private static int shiftOf(final int counter) {
+        return (counter % COUNTERS_PER_WORD) * COUNTER_BITS;
+    }
+
+    /**
+     * Spreads a hash code over 64 bits with the finalization step of MurmurHash3.
+     */
+    private static long mix(final int hashCode) {
+        long h = hashCode;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static int ceilingPowerOfTwo(final int value) {
+        final int highest = Integer.highestOneBit(value);
+        return highest == value ? value : highest << 1;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.local;
+
+import com.hazelcast.core.Message;
+import com.hazelcast.core.MessageListener;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+import com.hazelcast.topic.ReliableMessageListener;
+
+/**
+ * A {@link ReliableMessageListener} detecting lost invalidations.
+ * <p/>
+ * A reliable topic stores its messages in a ringbuffer and hands out their sequence numbers in order. When the
+ * listener falls so far behind that messages are overwritten before they are read, it continues from the oldest
+ * message left, which shows up as a jump in the sequence numbers. Since the lost messages may have invalidated any
+ * entry, the region is cleared when that happens.
+ */
+final class GapDetectingMessageListener implements ReliableMessageListener<Object> {
+
+    private static final ILogger LOGGER = Logger.getLogger(GapDetectingMessageListener.class);
+
+    private final String name;
+    private final MessageListener<Object> delegate;
+    private final Runnable clearRegion;
+    // Only accessed by the single thread delivering messages to this listener
+    private long lastSequence = -1;
+
+    /**
+     * @param name        the name of the region, used for logging
+     * @param delegate    the listener processing the messages
+     * @param clearRegion clears the region when messages were lost
+     */
+    GapDetectingMessageListener(final String name, final MessageListener<Object> delegate, final Runnable clearRegion) {
+        this.name = name;
+        this.delegate = delegate;
+        this.clearRegion = clearRegion;
+    }
+
+    @Override
+    public void onMessage(final Message<Object> message) {
+        delegate.onMessage(message);
+    }
+
+    @Override
+    public long retrieveInitialSequence() {
+        // Start with the next message published
+        return -1;
+    }
+
+    @Override
+    public void storeSequence(final long sequence) {
+        if (lastSequence >= 0 && sequence != lastSequence + 1) {
+            LOGGER.warning("Lost " + (sequence - lastSequence - 1) + " invalidations of region " + name
+                    + ", clearing the region");
+            clearRegion.run();
+        }
+        lastSequence = sequence;
+    }
+
+    @Override
+    public boolean isLossTolerant() {
+        return true;
+    }
+
+    @Override
+    public boolean isTerminal(final Throwable failure) {
+        return false;
+    }
+}
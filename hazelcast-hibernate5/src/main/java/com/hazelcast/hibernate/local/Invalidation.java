@@ -26,18 +26,32 @@ import java.io.IOException;
 
 /**
  * An invalidation messages
+ * <p/>
+ * The origin is part of the serialized form, which is therefore not compatible with the form written by versions
+ * without it.
  */
 public class Invalidation implements IdentifiedDataSerializable {
 
     private Object key;
     private Object version;
+    private String origin;
 
     public Invalidation() {
     }
 
     public Invalidation(final Object key, final Object version) {
+        this(key, version, null);
+    }
+
+    /**
+     * @param key     the key to invalidate, or {@code null} to invalidate the entire region
+     * @param version the version of the entry which caused the invalidation, may be {@code null}
+     * @param origin  the id of the region cache which published the invalidation, may be {@code null}
+     */
+    public Invalidation(final Object key, final Object version, final String origin) {
         this.key = key;
         this.version = version;
+        this.origin = origin;
     }
 
     public Object getKey() {
@@ -48,16 +62,22 @@ public class Invalidation implements IdentifiedDataSerializable {
         return version;
     }
 
+    public String getOrigin() {
+        return origin;
+    }
+
     @Override
     public void writeData(final ObjectDataOutput out) throws IOException {
         out.writeObject(key);
         out.writeObject(version);
+        out.writeUTF(origin);
     }
 
     @Override
     public void readData(final ObjectDataInput in) throws IOException {
         key = in.readObject();
         version = in.readObject();
+        origin = in.readUTF();
     }
 
     @Override
@@ -72,6 +92,6 @@ public class Invalidation implements IdentifiedDataSerializable {
 
     @Override
     public String toString() {
-        return "Invalidation{key=" + key + ", version=" + version + '}';
+        return "Invalidation{key=" + key + ", version=" + version + ", origin=" + origin + '}';
     }
 }
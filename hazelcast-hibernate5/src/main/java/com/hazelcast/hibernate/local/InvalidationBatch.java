@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.local;
+
+import com.hazelcast.hibernate.serialization.HibernateDataSerializerHook;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A batch of invalidation messages published as a single topic message
+ */
+public class InvalidationBatch implements IdentifiedDataSerializable {
+
+    private List<Object> invalidations;
+
+    public InvalidationBatch() {
+    }
+
+    public InvalidationBatch(final Collection<?> invalidations) {
+        this.invalidations = new ArrayList<Object>(invalidations);
+    }
+
+    public List<Object> getInvalidations() {
+        return invalidations;
+    }
+
+    @Override
+    public void writeData(final ObjectDataOutput out) throws IOException {
+        out.writeInt(invalidations.size());
+        for (final Object invalidation : invalidations) {
+            out.writeObject(invalidation);
+        }
+    }
+
+    @Override
+    public void readData(final ObjectDataInput in) throws IOException {
+        final int size = in.readInt();
+        invalidations = new ArrayList<Object>(size);
+        for (int i = 0; i < size; i++) {
+            invalidations.add(in.readObject());
+        }
+    }
+
+    @Override
+    public int getFactoryId() {
+        return HibernateDataSerializerHook.F_ID;
+    }
+
+    @Override
+    public int getId() {
+        return HibernateDataSerializerHook.INVALIDATION_BATCH;
+    }
+
+    @Override
+    public String toString() {
+        return "InvalidationBatch{invalidations=" + invalidations + '}';
+    }
+}
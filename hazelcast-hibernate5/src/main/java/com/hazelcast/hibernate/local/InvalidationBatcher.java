@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.local;
+
+import com.hazelcast.core.ITopic;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the {@link Invalidation invalidations} of a region and publishes them as one {@link InvalidationBatch}.
+ * <p/>
+ * Invalidations of the same key are coalesced, keeping the last one unless an earlier one invalidates the key
+ * unconditionally. An invalidation of the entire region discards everything collected before it. A batch is
+ * published when it reaches {@link #MAX_BATCH_SIZE} keys or when {@link #flush()} is called, which the
+ * {@link CleanupService} does at a fixed rate and a {@link LocalRegionCache} does when a transaction completes.
+ */
+final class InvalidationBatcher {
+
+    /**
+     * Maximum number of invalidations published in one batch.
+     */
+    static final int MAX_BATCH_SIZE = 1000;
+
+    private final ITopic<Object> topic;
+    private Map<Object, Invalidation> pending = new LinkedHashMap<Object, Invalidation>();
+    private Invalidation clear;
+
+    InvalidationBatcher(final ITopic<Object> topic) {
+        this.topic = topic;
+    }
+
+    /**
+     * Adds a message to the current batch.
+     *
+     * @param message the message to publish
+     * @return {@code true} if the message was added, {@code false} if it cannot be batched and has to be published
+     * on its own
+     */
+    boolean add(final Object message) {
+        if (!(message instanceof Invalidation)) {
+            return false;
+        }
+        final Invalidation invalidation = (Invalidation) message;
+        final Object key = invalidation.getKey();
+        Map<Object, Invalidation> full = null;
+        synchronized (this) {
+            if (key == null) {
+                clear = invalidation;
+                pending.clear();
+            } else {
+                final Invalidation previous = pending.put(key, invalidation);
+                if (previous != null && previous.getVersion() == null) {
+                    pending.put(key, previous);
+                }
+                if (pending.size() >= MAX_BATCH_SIZE) {
+                    full = takePending();
+                }
+            }
+        }
+        if (full != null) {
+            publish(full.values());
+        }
+        return true;
+    }
+
+    /**
+     * Publishes the invalidations collected so far.
+     */
+    void flush() {
+        final Invalidation flushedClear;
+        final Map<Object, Invalidation> flushed;
+        synchronized (this) {
+            flushedClear = clear;
+            clear = null;
+            flushed = takePending();
+        }
+        if (flushedClear != null) {
+            topic.publish(flushedClear);
+        }
+        publish(flushed.values());
+    }
+
+    private Map<Object, Invalidation> takePending() {
+        final Map<Object, Invalidation> taken = pending;
+        pending = new LinkedHashMap<Object, Invalidation>();
+        return taken;
+    }
+
+    private void publish(final Collection<Invalidation> invalidations) {
+        if (invalidations.size() == 1) {
+            topic.publish(invalidations.iterator().next());
+        } else if (!invalidations.isEmpty()) {
+            topic.publish(new InvalidationBatch(invalidations));
+        }
+    }
+}
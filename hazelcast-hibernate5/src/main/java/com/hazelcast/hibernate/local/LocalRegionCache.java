@@ -30,17 +30,12 @@ import com.hazelcast.hibernate.serialization.MarkerWrapper;
 import com.hazelcast.hibernate.serialization.Value;
 import com.hazelcast.util.Clock;
 import com.hazelcast.util.EmptyStatement;
+import com.hazelcast.util.UuidUtil;
 import org.hibernate.cache.spi.CacheDataDescription;
 import org.hibernate.cache.spi.access.SoftLock;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -52,7 +47,6 @@ public class LocalRegionCache implements RegionCache {
 
     private static final long SEC_TO_MS = 1000L;
     private static final int MAX_SIZE = 100000;
-    private static final float BASE_EVICTION_RATE = 0.2F;
 
     protected final HazelcastInstance hazelcastInstance;
     protected final ITopic<Object> topic;
@@ -62,6 +56,15 @@ public class LocalRegionCache implements RegionCache {
     protected final AtomicLong markerIdCounter;
     protected MapConfig config;
 
+    // Identifies the invalidations published by this cache, so their echo can be skipped
+    private final String id = UuidUtil.newUnsecureUuidString();
+    private final SampledEvictor evictor = new SampledEvictor();
+    private final RegionStore store;
+    private final TinyLfuAdmission admission;
+    private final CleanupStatistics cleanupStatistics = new CleanupStatistics();
+    private volatile InvalidationBatcher invalidationBatcher;
+    private volatile ExpiryWheel expiryWheel;
+
     /**
      * @param name              the name for this region cache, which is also used to retrieve configuration/topic
      * @param hazelcastInstance the {@code HazelcastInstance} to which this region cache belongs, used to retrieve
@@ -87,18 +90,47 @@ public class LocalRegionCache implements RegionCache {
      */
     public LocalRegionCache(final String name, final HazelcastInstance hazelcastInstance,
                             final CacheDataDescription metadata, final boolean withTopic) {
+        this(name, hazelcastInstance, metadata, withTopic, false);
+    }
+
+    /**
+     * @param name              the name for this region cache, which is also used to retrieve configuration/topic
+     * @param hazelcastInstance the {@code HazelcastInstance} to which this region cache belongs, used to retrieve
+     *                          configuration and to lookup an {@link ITopic} to register a {@link MessageListener}
+     *                          with if {@code withTopic} is {@code true} (optional)
+     * @param metadata          metadata describing the cached data, used to compare data versions (optional)
+     * @param withTopic         {@code true} to register a {@link MessageListener} with the {@link ITopic} whose name
+     *                          matches this region cache <i>if</i> a {@code HazelcastInstance} was provided to look
+     *                          up the topic; otherwise, {@code false} not to register a listener even if an instance
+     *                          was provided
+     * @param reliableTopic     {@code true} to use a reliable topic, which detects lost invalidations and clears this
+     *                          region cache when it does; otherwise, {@code false} to use a classic topic
+     */
+    public LocalRegionCache(final String name, final HazelcastInstance hazelcastInstance,
+                            final CacheDataDescription metadata, final boolean withTopic, final boolean reliableTopic) {
         this.hazelcastInstance = hazelcastInstance;
         try {
             config = hazelcastInstance != null ? hazelcastInstance.getConfig().findMapConfig(name) : null;
         } catch (UnsupportedOperationException ignored) {
             EmptyStatement.ignore(ignored);
         }
+        admission = TinyLfuAdmission.create(config);
         versionComparator = metadata != null && metadata.isVersioned() ? metadata.getVersionComparator() : null;
-        cache = new ConcurrentHashMap<Object, Expirable>();
+        final RegionStore offHeapStore = OffHeapRegionStore.create(hazelcastInstance, config);
+        store = offHeapStore != null ? offHeapStore : new SizeTrackingMap(new EntrySizeEstimator());
+        cache = store;
         markerIdCounter = new AtomicLong();
 
         messageListener = createMessageListener();
-        if (withTopic && hazelcastInstance != null) {
+        if (withTopic && hazelcastInstance != null && reliableTopic) {
+            topic = hazelcastInstance.getReliableTopic(name);
+            topic.addMessageListener(new GapDetectingMessageListener(name, messageListener, new Runnable() {
+                @Override
+                public void run() {
+                    cache.clear();
+                }
+            }));
+        } else if (withTopic && hazelcastInstance != null) {
             topic = hazelcastInstance.getTopic(name);
             topic.addMessageListener(messageListener);
         } else {
@@ -108,6 +140,9 @@ public class LocalRegionCache implements RegionCache {
 
     @Override
     public Object get(final Object key, long txTimestamp) {
+        if (admission != null) {
+            admission.recordAccess(key);
+        }
         final Expirable value = cache.get(key);
         return value == null ? null : value.getValue(txTimestamp);
     }
@@ -115,7 +150,14 @@ public class LocalRegionCache implements RegionCache {
     @Override
     public boolean insert(final Object key, final Object value, final Object currentVersion) {
         final Value newValue = new Value(currentVersion, nextTimestamp(), value);
-        return cache.putIfAbsent(key, newValue) == null;
+        if (admission != null && !cache.containsKey(key)) {
+            admission.admit(key, cache);
+        }
+        if (cache.putIfAbsent(key, newValue) == null) {
+            scheduleExpiry(key, newValue);
+            return true;
+        }
+        return false;
     }
 
     @Override
@@ -124,11 +166,16 @@ public class LocalRegionCache implements RegionCache {
             Expirable previous = cache.get(key);
             Value newValue = new Value(version, nextTimestamp(), value);
             if (previous == null) {
+                if (admission != null) {
+                    admission.admit(key, cache);
+                }
                 if (cache.putIfAbsent(key, newValue) == null) {
+                    scheduleExpiry(key, newValue);
                     return true;
                 }
             } else if (previous.isReplaceableBy(txTimestamp, version, versionComparator)) {
                 if (cache.replace(key, previous, newValue)) {
+                    scheduleExpiry(key, newValue);
                     return true;
                 }
             } else {
@@ -149,6 +196,7 @@ public class LocalRegionCache implements RegionCache {
                 revised = new Value(newVersion, timestamp, newValue);
                 updated = true;
                 if (cache.putIfAbsent(key, revised) == null) {
+                    scheduleExpiry(key, (Value) revised);
                     break;
                 }
             } else {
@@ -165,6 +213,9 @@ public class LocalRegionCache implements RegionCache {
                             updated = true;
                         }
                         if (cache.replace(key, original, revised)) {
+                            if (updated) {
+                                scheduleExpiry(key, (Value) revised);
+                            }
                             break;
                         }
                     } else if (original.getValue() == null) {
@@ -186,18 +237,24 @@ public class LocalRegionCache implements RegionCache {
             }
         }
         maybeNotifyTopic(key, newValue, newVersion);
+        // Transactions complete with an update or unlock, whose invalidation other members should not wait for
+        flushInvalidations();
 
         return updated;
     }
 
     protected void maybeNotifyTopic(final Object key, final Object value, final Object version) {
         if (topic != null) {
-            topic.publish(createMessage(key, value, version));
+            final Object message = createMessage(key, value, version);
+            final InvalidationBatcher batcher = invalidationBatcher;
+            if (batcher == null || !batcher.add(message)) {
+                topic.publish(message);
+            }
         }
     }
 
     protected Object createMessage(final Object key, final Object value, final Object currentVersion) {
-        return new Invalidation(key, currentVersion);
+        return new Invalidation(key, currentVersion, id);
     }
 
     protected MessageListener<Object> createMessageListener() {
@@ -205,11 +262,27 @@ public class LocalRegionCache implements RegionCache {
 
             @Override
             public void onMessage(final Message<Object> message) {
-                    maybeInvalidate(message.getMessageObject());
+                final Object messageObject = message.getMessageObject();
+                if (messageObject instanceof InvalidationBatch) {
+                    for (final Object invalidation : ((InvalidationBatch) messageObject).getInvalidations()) {
+                        if (!isOwnInvalidation(invalidation)) {
+                            maybeInvalidate(invalidation);
+                        }
+                    }
+                } else if (!isOwnInvalidation(messageObject)) {
+                    maybeInvalidate(messageObject);
+                }
             }
         };
     }
 
+    /**
+     * The topic also delivers the messages published by this cache, which already applied the change locally.
+     */
+    private boolean isOwnInvalidation(final Object messageObject) {
+        return messageObject instanceof Invalidation && id.equals(((Invalidation) messageObject).getOrigin());
+    }
+
     @Override
     public boolean remove(final Object key) {
         final Expirable value = cache.remove(key);
@@ -265,6 +338,7 @@ public class LocalRegionCache implements RegionCache {
             }
         }
         maybeNotifyTopic(key, null, null);
+        flushInvalidations();
     }
 
     @Override
@@ -285,7 +359,7 @@ public class LocalRegionCache implements RegionCache {
 
     @Override
     public long getSizeInMemory() {
-        return 0;
+        return store.getSizeInMemory();
     }
 
     @Override
@@ -293,28 +367,101 @@ public class LocalRegionCache implements RegionCache {
         return cache;
     }
 
-    void cleanup() {
-        final int maxSize;
-        final long timeToLive;
-        if (config != null) {
-            maxSize = config.getMaxSizeConfig().getSize();
-            timeToLive = config.getTimeToLiveSeconds() * SEC_TO_MS;
-        } else {
-            maxSize = MAX_SIZE;
-            timeToLive = CacheEnvironment.getDefaultCacheTimeoutInMillis();
+    /**
+     * Starts collecting invalidations into batches instead of publishing them one by one. The batches are published
+     * by {@link #flushInvalidations()}, and as soon as a transaction completes with an update or unlock.
+     */
+    void enableInvalidationBatching() {
+        if (topic != null) {
+            invalidationBatcher = new InvalidationBatcher(topic);
         }
+    }
 
-        boolean limitSize = maxSize > 0 && maxSize != Integer.MAX_VALUE;
-        if (limitSize || timeToLive > 0) {
-            List<EvictionEntry> entries = searchEvictableEntries(timeToLive, limitSize);
-            final int diff = cache.size() - maxSize;
-            final int evictionRate = calculateEvictionRate(diff, maxSize);
-            if (evictionRate > 0 && entries != null) {
-                evictEntries(entries, evictionRate);
-            }
+    void flushInvalidations() {
+        final InvalidationBatcher batcher = invalidationBatcher;
+        if (batcher != null) {
+            batcher.flush();
+        }
+    }
+
+    /**
+     * Starts tracking the deadlines of the entries, so that {@link #expire(int)} can remove expired entries without
+     * scanning the cache and {@link #cleanup(int)} no longer has to.
+     *
+     * @param tickMillis the time in milliseconds between two calls of {@link #expire(int)}
+     */
+    void enableExpiry(final long tickMillis) {
+        final long timeToLive = getTimeToLive();
+        if (timeToLive > 0) {
+            expiryWheel = new ExpiryWheel(cache, timeToLive, tickMillis);
+        }
+    }
+
+    /**
+     * Removes the entries whose time to live has passed, handling at most the given number of keys.
+     *
+     * @param limit the maximum number of keys to handle
+     * @return {@code true} if all expired entries were removed, {@code false} if there may be some left
+     */
+    boolean expire(final int limit) {
+        final ExpiryWheel wheel = expiryWheel;
+        if (wheel == null) {
+            return true;
+        }
+        wheel.advance(nextTimestamp(), limit);
+        return !wheel.isBehind();
+    }
+
+    /**
+     * Removes expired entries and evicts entries beyond the maximum size, visiting at most the given number of
+     * entries. A cache still exceeding its maximum size is left for the next cleanup.
+     *
+     * @param limit the maximum number of entries to visit
+     * @return the number of entries removed
+     */
+    int cleanup(final int limit) {
+        // Expired entries are already taken care of if their deadlines are tracked
+        final long timeToLive = expiryWheel != null ? 0 : getTimeToLive();
+
+        return evictor.cleanup(cache, getMaxSize(), timeToLive, nextTimestamp(), limit);
+    }
+
+    /**
+     * @return the number of entries relative to the maximum size, above {@code 1} if the cache exceeds it, or
+     * {@code 0} if the size is not limited
+     */
+    float getSizePressure() {
+        final int maxSize = getMaxSize();
+        return maxSize > 0 && maxSize != Integer.MAX_VALUE ? (float) getEntryCount() / maxSize : 0F;
+    }
+
+    int getEntryCount() {
+        return cache.size();
+    }
+
+    /**
+     * @return statistics about the cleanups of this cache
+     */
+    public CleanupStatistics getCleanupStatistics() {
+        return cleanupStatistics;
+    }
+
+    void scheduleExpiry(final Object key, final Value value) {
+        final ExpiryWheel wheel = expiryWheel;
+        if (wheel != null) {
+            wheel.schedule(key, value);
         }
     }
 
+    private int getMaxSize() {
+        return config != null ? store.maxEntries(config.getMaxSizeConfig()) : MAX_SIZE;
+    }
+
+    private long getTimeToLive() {
+        return config != null ? config.getTimeToLiveSeconds() * SEC_TO_MS
+                : CacheEnvironment.getDefaultCacheTimeoutInMillis();
+    }
+
     protected void maybeInvalidate(final Object messageObject) {
         Invalidation invalidation = (Invalidation) messageObject;
         Object key = invalidation.getKey();
@@ -357,88 +504,4 @@ public class LocalRegionCache implements RegionCache {
                 : HazelcastTimestamper.nextTimestamp(hazelcastInstance);
     }
 
-    private List<EvictionEntry> searchEvictableEntries(final long timeToLive, final boolean limitSize) {
-        List<EvictionEntry> entries = null;
-        Iterator<Entry<Object, Expirable>> iter = cache.entrySet().iterator();
-        long now = nextTimestamp();
-        while (iter.hasNext()) {
-            final Entry<Object, Expirable> e = iter.next();
-            final Object k = e.getKey();
-            final Expirable expirable = e.getValue();
-            if (expirable instanceof ExpiryMarker) {
-                continue;
-            }
-            final Value v = (Value) expirable;
-            if (timeToLive > 0 && v.getTimestamp() + timeToLive < now) {
-                iter.remove();
-            } else if (limitSize) {
-                if (entries == null) {
-                    // Use a List rather than a Set for correctness. Using a Set, especially a TreeSet
-                    // based on EvictionEntry.compareTo, causes evictions to be processed incorrectly
-                    // when two or more entries in the map have the same timestamp. In such a case, the
-                    // _first_ entry at a given timestamp is the only one that can be evicted because
-                    // TreeSet does not add "equivalent" entries. A second benefit of using a List is
-                    // that the cost of sorting the entries is not incurred if eviction isn't performed
-                    entries = new ArrayList<EvictionEntry>(cache.size());
-                }
-                entries.add(new EvictionEntry(k, v));
-            }
-        }
-        return entries;
-    }
-
-    private int calculateEvictionRate(final int diff, final int maxSize) {
-        return diff >= 0 ? (diff + (int) (maxSize * BASE_EVICTION_RATE)) : 0;
-    }
-
-    private void evictEntries(final List<EvictionEntry> entries, final int evictionRate) {
-        // Only sort the entries if we're going to evict some
-        Collections.sort(entries);
-        int removed = 0;
-        for (EvictionEntry entry : entries) {
-            if (cache.remove(entry.key, entry.value) && ++removed == evictionRate) {
-                break;
-            }
-        }
-    }
-
-    /**
-     * Inner class that instances represent an entry marked for eviction
-     */
-    private static final class EvictionEntry implements Comparable<EvictionEntry> {
-        final Object key;
-        final Value value;
-
-        private EvictionEntry(final Object key, final Value value) {
-            this.key = key;
-            this.value = value;
-        }
-
-        @Override
-        public int compareTo(final EvictionEntry o) {
-            final long thisVal = this.value.getTimestamp();
-            final long anotherVal = o.value.getTimestamp();
-            return (thisVal < anotherVal ? -1 : (thisVal == anotherVal ? 0 : 1));
-        }
-
-        @Override
-        public boolean equals(final Object o) {
-            if (this == o) {
-                return true;
-            }
-            if (o == null || getClass() != o.getClass()) {
-                return false;
-            }
-
-            EvictionEntry that = (EvictionEntry) o;
-
-            return (key == null ? that.key == null : key.equals(that.key))
-                    && (value == null ? that.value == null : value.equals(that.value));
-        }
-
-        @Override
-        public int hashCode() {
-            return key == null ? 0 : key.hashCode();
-        }
-    }
 }
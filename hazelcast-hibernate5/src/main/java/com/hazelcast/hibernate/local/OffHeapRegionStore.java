@@ -0,0 +1,550 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.local;
+
+import com.hazelcast.config.InMemoryFormat;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.MaxSizeConfig;
+import com.hazelcast.config.NativeMemoryConfig;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.hibernate.serialization.Expirable;
+import com.hazelcast.internal.serialization.impl.HeapData;
+import com.hazelcast.spi.impl.SerializationServiceSupport;
+import com.hazelcast.spi.serialization.SerializationService;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@link RegionStore} keeping its entries serialized in direct memory.
+ * <p/>
+ * Entries are serialized with the {@link SerializationService} of the {@code HazelcastInstance}, which has the
+ * Hibernate serializers registered, and stored through a {@link SlabAllocator}. Only the keys and the addresses of
+ * their entries remain on the heap; entries are deserialized whenever they are read. Conditional operations compare
+ * the serialized form of the expected entry, the same way {@code IMap} does.
+ * <p/>
+ * Mutations of a key are guarded by a lock striped over the keys, reads take the shared side of that lock so an
+ * entry cannot be freed while it is read. When no memory is left for the size of an entry, a few entries of the same
+ * size are sampled and one of them is evicted. If there are none, the entries of the slab chosen by
+ * {@link SlabAllocator#victimSlab(int)} are evicted, so the slab can be handed to the size of the entry. Expiry
+ * markers and soft locks are never evicted this way.
+ * <p/>
+ * An entry which still cannot be stored is dropped and counted in {@link #getDroppedWrites()}, which is the same as
+ * evicting it right away. That is only done for values replacing another value or nothing: a marker, or a value
+ * replacing a marker, guards the key against stale loads, so it is kept on the heap instead until it is replaced by
+ * an entry which fits in direct memory again. Writes therefore succeed whenever they report success.
+ * <p/>
+ * The store is used for a region by setting the {@link InMemoryFormat#NATIVE} in-memory format on the
+ * {@link MapConfig} of the region. Its memory is bounded by the {@link MaxSizeConfig.MaxSizePolicy#USED_NATIVE_MEMORY_SIZE}
+ * of the region if configured, or by the size of the {@link NativeMemoryConfig} otherwise.
+ */
+final class OffHeapRegionStore extends AbstractMap<Object, Expirable> implements RegionStore {
+
+    private static final long MB = 1024L * 1024L;
+    private static final int PERCENT = 100;
+    private static final int LOCK_STRIPES = 64;
+    // Evict before the memory is exhausted, so new entries keep finding free chunks
+    private static final float HIGH_WATER_MARK = 0.9F;
+    private static final int EVICTION_SAMPLE_SIZE = 16;
+    // Address of the entries kept in the overflow map, distinct from the negative results of a failed allocation
+    private static final long ON_HEAP = Long.MIN_VALUE;
+
+    private final ConcurrentMap<Object, Long> index = new ConcurrentHashMap<Object, Long>();
+    private final ConcurrentMap<Object, Expirable> overflow = new ConcurrentHashMap<Object, Expirable>();
+    private final ReadWriteLock[] locks = new ReadWriteLock[LOCK_STRIPES];
+    private final SerializationService serializationService;
+    private final SlabAllocator allocator;
+    private final AtomicLong droppedWrites = new AtomicLong();
+    private final Object evictionLock = new Object();
+    private Iterator<Map.Entry<Object, Long>> evictionCursor;
+
+    OffHeapRegionStore(final SerializationService serializationService, final SlabAllocator allocator) {
+        this.serializationService = serializationService;
+        this.allocator = allocator;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * @param hazelcastInstance the {@code HazelcastInstance} the region belongs to, may be {@code null}
+     * @param config            the configuration of the region, may be {@code null}
+     * @return the store to use, or {@code null} if the region is not configured for off-heap storage
+     */
+    static OffHeapRegionStore create(final HazelcastInstance hazelcastInstance, final MapConfig config) {
+        if (config == null || config.getInMemoryFormat() != InMemoryFormat.NATIVE
+                || !(hazelcastInstance instanceof SerializationServiceSupport)) {
+            return null;
+        }
+        final NativeMemoryConfig nativeMemoryConfig = hazelcastInstance.getConfig().getNativeMemoryConfig();
+        final MaxSizeConfig maxSizeConfig = config.getMaxSizeConfig();
+        final long maxMemory = maxSizeConfig.getMaxSizePolicy() == MaxSizeConfig.MaxSizePolicy.USED_NATIVE_MEMORY_SIZE
+                ? maxSizeConfig.getSize() * MB : nativeMemoryConfig.getSize().bytes();
+        final SlabAllocator allocator = new SlabAllocator(maxMemory, nativeMemoryConfig.getPageSize(),
+                nativeMemoryConfig.getMinBlockSize());
+        return new OffHeapRegionStore(((SerializationServiceSupport) hazelcastInstance).getSerializationService(),
+                allocator);
+    }
+
+    @Override
+    public long getSizeInMemory() {
+        return allocator.getUsedMemory();
+    }
+
+    /**
+     * @return the number of entries which could not be stored for lack of memory
+     */
+    long getDroppedWrites() {
+        return droppedWrites.get();
+    }
+
+    /**
+     * @return the number of entries kept on the heap for lack of memory
+     */
+    int getOverflowSize() {
+        return overflow.size();
+    }
+
+    /**
+     * The store is kept below 90% of its memory in any case. Entry count policies and
+     * {@link MaxSizeConfig.MaxSizePolicy#USED_NATIVE_MEMORY_PERCENTAGE} bound it further.
+     */
+    @Override
+    public int maxEntries(final MaxSizeConfig maxSizeConfig) {
+        final long usedMemory = allocator.getUsedMemory();
+        final int entries = size();
+        final int memoryBound = SizeTrackingMap.entriesWithin(usedMemory, entries,
+                (long) (allocator.getMaxMemory() * HIGH_WATER_MARK));
+        switch (maxSizeConfig.getMaxSizePolicy()) {
+            case PER_NODE:
+            case PER_PARTITION:
+                return Math.min(maxSizeConfig.getSize(), memoryBound);
+            case USED_NATIVE_MEMORY_PERCENTAGE:
+                return Math.min(memoryBound, SizeTrackingMap.entriesWithin(usedMemory, entries,
+                        allocator.getMaxMemory() / PERCENT * maxSizeConfig.getSize()));
+            default:
+                return memoryBound;
+        }
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return index.containsKey(key);
+    }
+
+    @Override
+    public Expirable get(final Object key) {
+        final Lock lock = lockFor(key).readLock();
+        lock.lock();
+        try {
+            final Long address = index.get(key);
+            return address == null ? null : read(key, address);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Expirable put(final Object key, final Expirable value) {
+        final byte[] record = serialize(value);
+        final Lock lock = lockFor(key).writeLock();
+        lock.lock();
+        try {
+            final Long previous = index.get(key);
+            final Expirable previousValue = previous == null ? null : read(key, previous);
+            store(key, record, value, previous, previousValue);
+            return previousValue;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Expirable putIfAbsent(final Object key, final Expirable value) {
+        final byte[] record = serialize(value);
+        final Lock lock = lockFor(key).writeLock();
+        lock.lock();
+        try {
+            final Long previous = index.get(key);
+            if (previous != null) {
+                return read(key, previous);
+            }
+            store(key, record, value, null, null);
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Expirable replace(final Object key, final Expirable value) {
+        final byte[] record = serialize(value);
+        final Lock lock = lockFor(key).writeLock();
+        lock.lock();
+        try {
+            final Long previous = index.get(key);
+            if (previous == null) {
+                return null;
+            }
+            final Expirable previousValue = read(key, previous);
+            store(key, record, value, previous, previousValue);
+            return previousValue;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean replace(final Object key, final Expirable oldValue, final Expirable newValue) {
+        final byte[] expected = serialize(oldValue);
+        final byte[] record = serialize(newValue);
+        final Lock lock = lockFor(key).writeLock();
+        lock.lock();
+        try {
+            final Long previous = index.get(key);
+            if (previous == null || !matches(key, previous, expected)) {
+                return false;
+            }
+            store(key, record, newValue, previous, oldValue);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Expirable remove(final Object key) {
+        final Lock lock = lockFor(key).writeLock();
+        lock.lock();
+        try {
+            final Long previous = index.remove(key);
+            if (previous == null) {
+                return null;
+            }
+            final Expirable previousValue = read(key, previous);
+            free(key, previous);
+            return previousValue;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(final Object key, final Object value) {
+        if (!(value instanceof Expirable)) {
+            return false;
+        }
+        final byte[] expected = serialize((Expirable) value);
+        final Lock lock = lockFor(key).writeLock();
+        lock.lock();
+        try {
+            final Long previous = index.get(key);
+            if (previous == null || !matches(key, previous, expected)) {
+                return false;
+            }
+            index.remove(key);
+            free(key, previous);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (final Object key : index.keySet()) {
+            delete(key);
+        }
+    }
+
+    @Override
+    public Set<Object> keySet() {
+        return new KeySet();
+    }
+
+    @Override
+    public Set<Map.Entry<Object, Expirable>> entrySet() {
+        return new EntrySet();
+    }
+
+    private void delete(final Object key) {
+        final Lock lock = lockFor(key).writeLock();
+        lock.lock();
+        try {
+            final Long previous = index.remove(key);
+            if (previous != null) {
+                free(key, previous);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores the record of the value for the key and frees the previous record, if any. If the record cannot be
+     * stored, the value is kept on the heap if it or the previous value guards the key, and the key is removed
+     * otherwise. Must be called holding the write lock of the key.
+     */
+    private void store(final Object key, final byte[] record, final Expirable value, final Long previous,
+                       final Expirable previousValue) {
+        long address = allocator.store(record);
+        final int sizeClass = allocator.sizeClassFor(record.length);
+        if (address < 0 && sizeClass >= 0
+                && (evictSample(key, sizeClass) || evictSlab(key, allocator.victimSlab(sizeClass)))) {
+            address = allocator.store(record);
+        }
+        if (address < 0 && (!TinyLfuAdmission.isEvictable(value)
+                || previousValue != null && !TinyLfuAdmission.isEvictable(previousValue))) {
+            overflow.put(key, value);
+            address = ON_HEAP;
+        }
+        if (address == ON_HEAP) {
+            index.put(key, address);
+            if (previous != null && previous != ON_HEAP) {
+                allocator.free(previous);
+            }
+            return;
+        }
+        if (address < 0) {
+            droppedWrites.incrementAndGet();
+            index.remove(key);
+        } else {
+            index.put(key, address);
+        }
+        if (previous != null) {
+            free(key, previous);
+        }
+    }
+
+    /**
+     * Evicts one entry of the size class among a few sampled from a cursor over the keys.
+     */
+    private boolean evictSample(final Object key, final int sizeClass) {
+        synchronized (evictionLock) {
+            for (int sampled = 0; sampled < EVICTION_SAMPLE_SIZE; sampled++) {
+                if (evictionCursor == null || !evictionCursor.hasNext()) {
+                    evictionCursor = index.entrySet().iterator();
+                    if (!evictionCursor.hasNext()) {
+                        return false;
+                    }
+                }
+                final Map.Entry<Object, Long> candidate = evictionCursor.next();
+                if (!candidate.getKey().equals(key) && candidate.getValue() != ON_HEAP
+                        && allocator.sizeClassAt(candidate.getValue()) == sizeClass
+                        && evict(candidate.getKey(), sizeClass, -1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Evicts all entries stored in the slab, which hands the slab back to the allocator once it is empty.
+     */
+    private boolean evictSlab(final Object key, final int slab) {
+        if (slab < 0) {
+            return false;
+        }
+        boolean evicted = false;
+        for (final Map.Entry<Object, Long> candidate : index.entrySet()) {
+            if (!candidate.getKey().equals(key) && candidate.getValue() != ON_HEAP
+                    && SlabAllocator.slabOf(candidate.getValue()) == slab) {
+                evicted |= evict(candidate.getKey(), -1, slab);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Evicts the entry of the key if it is still stored in the given size class or slab. The lock of the key is
+     * only tried, as the lock of another key is held already.
+     */
+    private boolean evict(final Object key, final int sizeClass, final int slab) {
+        final Lock lock = lockFor(key).writeLock();
+        if (!lock.tryLock()) {
+            return false;
+        }
+        try {
+            final Long address = index.get(key);
+            if (address == null || address == ON_HEAP
+                    || (sizeClass >= 0 && allocator.sizeClassAt(address) != sizeClass)
+                    || (slab >= 0 && SlabAllocator.slabOf(address) != slab)
+                    || !TinyLfuAdmission.isEvictable(read(key, address))) {
+                return false;
+            }
+            index.remove(key);
+            allocator.free(address);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Expirable read(final Object key, final long address) {
+        if (address == ON_HEAP) {
+            return overflow.get(key);
+        }
+        return serializationService.toObject(new HeapData(allocator.read(address)));
+    }
+
+    private boolean matches(final Object key, final long address, final byte[] expected) {
+        if (address == ON_HEAP) {
+            return Arrays.equals(serialize(overflow.get(key)), expected);
+        }
+        return allocator.matches(address, expected);
+    }
+
+    private void free(final Object key, final long address) {
+        if (address == ON_HEAP) {
+            overflow.remove(key);
+        } else {
+            allocator.free(address);
+        }
+    }
+
+    private byte[] serialize(final Expirable value) {
+        return serializationService.toData(value).toByteArray();
+    }
+
+    private ReadWriteLock lockFor(final Object key) {
+        final int hash = key.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * Iterates over the keys without deserializing any entry.
+     */
+    private final class KeySet extends AbstractSet<Object> {
+
+        @Override
+        public Iterator<Object> iterator() {
+            final Iterator<Object> keys = index.keySet().iterator();
+            return new Iterator<Object>() {
+                private Object current;
+
+                @Override
+                public boolean hasNext() {
+                    return keys.hasNext();
+                }
+
+                @Override
+                public Object next() {
+                    current = keys.next();
+                    return current;
+                }
+
+                @Override
+                public void remove() {
+                    if (current == null) {
+                        throw new IllegalStateException();
+                    }
+                    delete(current);
+                    current = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return index.size();
+        }
+
+        @Override
+        public boolean contains(final Object key) {
+            return index.containsKey(key);
+        }
+
+        @Override
+        public boolean remove(final Object key) {
+            return OffHeapRegionStore.this.remove(key) != null;
+        }
+    }
+
+    /**
+     * Iterates over the entries, deserializing each entry when it is reached. Entries removed concurrently are
+     * skipped.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<Object, Expirable>> {
+
+        @Override
+        public Iterator<Map.Entry<Object, Expirable>> iterator() {
+            final Iterator<Object> keys = index.keySet().iterator();
+            return new Iterator<Map.Entry<Object, Expirable>>() {
+                private Map.Entry<Object, Expirable> next;
+                private Map.Entry<Object, Expirable> current;
+
+                @Override
+                public boolean hasNext() {
+                    while (next == null && keys.hasNext()) {
+                        final Object key = keys.next();
+                        final Expirable value = get(key);
+                        if (value != null) {
+                            next = new SimpleImmutableEntry<Object, Expirable>(key, value);
+                        }
+                    }
+                    return next != null;
+                }
+
+                @Override
+                public Map.Entry<Object, Expirable> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    current = next;
+                    next = null;
+                    return current;
+                }
+
+                @Override
+                public void remove() {
+                    if (current == null) {
+                        throw new IllegalStateException();
+                    }
+                    OffHeapRegionStore.this.remove(current.getKey(), current.getValue());
+                    current = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return index.size();
+        }
+    }
+}
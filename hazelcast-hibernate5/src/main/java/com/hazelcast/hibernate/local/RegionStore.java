@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.local;
+
+import com.hazelcast.config.MaxSizeConfig;
+import com.hazelcast.hibernate.serialization.Expirable;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The map backing a {@link LocalRegionCache}, aware of the memory its entries retain.
+ */
+interface RegionStore extends ConcurrentMap<Object, Expirable> {
+
+    /**
+     * @return the number of bytes retained by the entries of this store
+     */
+    long getSizeInMemory();
+
+    /**
+     * Translates a maximum size into a maximum number of entries for the {@link SampledEvictor}.
+     *
+     * @param maxSizeConfig the maximum size configuration of the region
+     * @return the maximum number of entries, or {@link Integer#MAX_VALUE} if the store is within a memory based limit
+     */
+    int maxEntries(MaxSizeConfig maxSizeConfig);
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.local;
+
+import com.hazelcast.hibernate.serialization.Expirable;
+import com.hazelcast.hibernate.serialization.Value;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Approximate LRU eviction for local region caches.
+ * <p/>
+ * Instead of collecting and sorting every cached entry, a bounded sample of {@link Value} timestamps is taken
+ * into a reusable array and the timestamp at the requested eviction quantile is used as a cutoff. Entries at or
+ * below the cutoff are then removed until the eviction quota is reached. Comparing against the cutoff with
+ * {@code <=} keeps entries sharing the same timestamp evictable, and a final pass without a cutoff guarantees the
+ * cache ends up within its maximum size even if the sample underestimated the quota.
+ * <p/>
+ * A cleanup may be limited to visit a number of entries, half of which are left to the eviction. The scan for expired
+ * entries then carries on from where the last cleanup stopped, and a cache still exceeding its maximum size after a
+ * limited cleanup is left for the next.
+ * <p/>
+ * Entries are only removed through {@link ConcurrentMap#remove(Object, Object)}, so entries updated concurrently
+ * are left alone and the {@link SizeTrackingMap} accounting sees every removal.
+ * <p/>
+ * Instances are not thread-safe and are meant to be driven by the {@link CleanupService} thread only.
+ */
+final class SampledEvictor {
+
+    /**
+     * Default number of timestamps sampled to estimate the eviction cutoff.
+     */
+    static final int DEFAULT_SAMPLE_SIZE = 1024;
+
+    private static final float BASE_EVICTION_RATE = 0.2F;
+
+    private final long[] samples;
+    private final Random random = new Random();
+    private Iterator<Object> cursor;
+    private int visits;
+
+    SampledEvictor() {
+        this(DEFAULT_SAMPLE_SIZE);
+    }
+
+    SampledEvictor(final int sampleSize) {
+        samples = new long[sampleSize];
+    }
+
+    /**
+     * Removes expired entries and, if the cache exceeds {@code maxSize}, evicts the oldest entries.
+     *
+     * @param cache      the cache to clean up
+     * @param maxSize    the maximum number of entries, or a non-positive value or {@link Integer#MAX_VALUE} for none
+     * @param timeToLive the time to live in milliseconds, or a non-positive value for none
+     * @param now        the current timestamp
+     * @return the number of entries removed
+     */
+    int cleanup(final ConcurrentMap<Object, Expirable> cache, final int maxSize, final long timeToLive, final long now) {
+        return cleanup(cache, maxSize, timeToLive, now, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Removes expired entries and, if the cache exceeds {@code maxSize}, evicts the oldest entries, visiting at most
+     * {@code limit} entries.
+     *
+     * @param cache      the cache to clean up
+     * @param maxSize    the maximum number of entries, or a non-positive value or {@link Integer#MAX_VALUE} for none
+     * @param timeToLive the time to live in milliseconds, or a non-positive value for none
+     * @param now        the current timestamp
+     * @param limit      the maximum number of entries to visit
+     * @return the number of entries removed
+     */
+    int cleanup(final ConcurrentMap<Object, Expirable> cache, final int maxSize, final long timeToLive, final long now,
+                final int limit) {
+        visits = limit;
+        final boolean limitSize = maxSize > 0 && maxSize != Integer.MAX_VALUE;
+        if (!limitSize && timeToLive <= 0) {
+            return 0;
+        }
+        // Leave half of the visits to the eviction, so that sampling cannot use them up
+        final int reserved = limitSize ? visits / 2 : 0;
+        visits -= reserved;
+        final int sizeBefore = cache.size();
+        final int sampled = sample(cache, timeToLive, now, limitSize);
+        visits += reserved;
+        final int expired = Math.max(0, sizeBefore - cache.size());
+        if (!limitSize) {
+            return expired;
+        }
+
+        final int size = cache.size();
+        final int diff = size - maxSize;
+        if (diff < 0) {
+            return expired;
+        }
+        final int evictionRate = diff + (int) (maxSize * BASE_EVICTION_RATE);
+        int removed = evict(cache, cutoff(sampled, evictionRate, size), evictionRate);
+        if (removed < diff && visits > 0) {
+            // The sample underestimated the cutoff; make sure we are back within the size limit
+            removed += evict(cache, Long.MAX_VALUE, diff - removed);
+        }
+        return expired + removed;
+    }
+
+    /**
+     * Samples live {@link Value} timestamps while removing expired entries. When a time to live is configured
+     * every entry has to be visited anyway, so reservoir sampling is used to keep the sample uniform. Otherwise
+     * sampling stops once the reservoir is full: iteration follows hash order, which is unrelated to the age of
+     * the entries.
+     */
+    private int sample(final ConcurrentMap<Object, Expirable> cache, final long timeToLive, final long now,
+                       final boolean limitSize) {
+        final int capacity = limitSize ? samples.length : 0;
+        int seen = 0;
+        // Only a scan for expired entries has to cover every entry, so only that one carries on where it stopped
+        boolean fresh = timeToLive <= 0 || cursor == null;
+        if (fresh) {
+            cursor = cache.keySet().iterator();
+        }
+        while (visits > 0) {
+            if (!cursor.hasNext()) {
+                if (fresh) {
+                    break;
+                }
+                cursor = cache.keySet().iterator();
+                fresh = true;
+                continue;
+            }
+            final Object key = cursor.next();
+            visits--;
+            final Expirable expirable = cache.get(key);
+            if (!(expirable instanceof Value)) {
+                continue;
+            }
+            final long timestamp = ((Value) expirable).getTimestamp();
+            if (timeToLive > 0 && timestamp + timeToLive < now) {
+                cache.remove(key, expirable);
+                continue;
+            }
+            if (seen < capacity) {
+                samples[seen] = timestamp;
+            } else if (timeToLive <= 0) {
+                break;
+            } else if (capacity > 0) {
+                final int slot = random.nextInt(seen + 1);
+                if (slot < capacity) {
+                    samples[slot] = timestamp;
+                }
+            }
+            seen++;
+        }
+        if (timeToLive <= 0 || !cursor.hasNext()) {
+            cursor = null;
+        }
+        return Math.min(seen, capacity);
+    }
+
+    private long cutoff(final int sampled, final int evictionRate, final int size) {
+        if (sampled == 0 || evictionRate >= size) {
+            return Long.MAX_VALUE;
+        }
+        Arrays.sort(samples, 0, sampled);
+        final long rank = ((long) evictionRate * sampled + size - 1) / size;
+        return samples[(int) Math.min(sampled, Math.max(1L, rank)) - 1];
+    }
+
+    private int evict(final ConcurrentMap<Object, Expirable> cache, final long cutoff, final int quota) {
+        int removed = 0;
+        final Iterator<Object> iterator = cache.keySet().iterator();
+        while (removed < quota && visits > 0 && iterator.hasNext()) {
+            final Object key = iterator.next();
+            visits--;
+            final Expirable expirable = cache.get(key);
+            if (expirable instanceof Value && ((Value) expirable).getTimestamp() <= cutoff
+                    && cache.remove(key, expirable)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.local;
+
+import com.hazelcast.config.MaxSizeConfig;
+import com.hazelcast.hibernate.serialization.Expirable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A map wrapping a {@link ConcurrentHashMap} which keeps a running total of the
+ * {@link EntrySizeEstimator estimated} size of its entries.
+ * <p/>
+ * The total is adjusted with the entries actually added or removed by each mutation, so it stays accurate under
+ * concurrent updates. Every mutation goes through the methods of this class: the entries of the views cannot be
+ * set, removals through the views and their iterators are routed to {@link #remove(Object)} and
+ * {@link #remove(Object, Object)}, and the default methods of {@code ConcurrentMap} are built on those too.
+ */
+class SizeTrackingMap extends AbstractMap<Object, Expirable> implements RegionStore {
+
+    private static final long MB = 1024L * 1024L;
+    private static final int PERCENT = 100;
+
+    private final ConcurrentMap<Object, Expirable> map = new ConcurrentHashMap<Object, Expirable>();
+    private final EntrySizeEstimator estimator;
+    private final AtomicLong sizeInMemory = new AtomicLong();
+
+    SizeTrackingMap(final EntrySizeEstimator estimator) {
+        this.estimator = estimator;
+    }
+
+    /**
+     * @return the estimated number of bytes retained by the entries of this map
+     */
+    @Override
+    public long getSizeInMemory() {
+        return sizeInMemory.get();
+    }
+
+    /**
+     * Heap based policies are translated using the current average size of the entries, other policies are taken
+     * as an entry count.
+     */
+    @Override
+    public int maxEntries(final MaxSizeConfig maxSizeConfig) {
+        switch (maxSizeConfig.getMaxSizePolicy()) {
+            case USED_HEAP_SIZE:
+                return entriesWithin(sizeInMemory.get(), size(), maxSizeConfig.getSize() * MB);
+            case USED_HEAP_PERCENTAGE:
+                return entriesWithin(sizeInMemory.get(), size(),
+                        Runtime.getRuntime().maxMemory() / PERCENT * maxSizeConfig.getSize());
+            default:
+                return maxSizeConfig.getSize();
+        }
+    }
+
+    /**
+     * @param bytes    the number of bytes currently retained
+     * @param entries  the number of entries currently stored
+     * @param maxBytes the maximum number of bytes to retain
+     * @return the number of entries of the current average size fitting into {@code maxBytes}, or
+     * {@link Integer#MAX_VALUE} if the entries already fit
+     */
+    static int entriesWithin(final long bytes, final int entries, final long maxBytes) {
+        if (bytes <= maxBytes || entries == 0) {
+            return Integer.MAX_VALUE;
+        }
+        return (int) Math.max(1L, (long) ((double) maxBytes / bytes * entries));
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public Expirable get(final Object key) {
+        return map.get(key);
+    }
+
+    @Override
+    public Expirable put(final Object key, final Expirable value) {
+        final Expirable previous = map.put(key, value);
+        adjust(key, value, previous);
+        return previous;
+    }
+
+    @Override
+    public void putAll(final Map<?, ? extends Expirable> entries) {
+        for (final Map.Entry<?, ? extends Expirable> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public Expirable putIfAbsent(final Object key, final Expirable value) {
+        final Expirable previous = map.putIfAbsent(key, value);
+        if (previous == null) {
+            adjust(key, value, null);
+        }
+        return previous;
+    }
+
+    @Override
+    public Expirable remove(final Object key) {
+        final Expirable previous = map.remove(key);
+        adjust(key, null, previous);
+        return previous;
+    }
+
+    @Override
+    public boolean remove(final Object key, final Object value) {
+        if (map.remove(key, value)) {
+            adjust(key, null, (Expirable) value);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Expirable replace(final Object key, final Expirable value) {
+        final Expirable previous = map.replace(key, value);
+        if (previous != null) {
+            adjust(key, value, previous);
+        }
+        return previous;
+    }
+
+    @Override
+    public boolean replace(final Object key, final Expirable oldValue, final Expirable newValue) {
+        if (map.replace(key, oldValue, newValue)) {
+            adjust(key, newValue, oldValue);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        // Remove entry by entry, resetting the total could lose entries added concurrently
+        for (final Map.Entry<Object, Expirable> entry : map.entrySet()) {
+            remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public Set<Object> keySet() {
+        return new KeySet();
+    }
+
+    @Override
+    public Set<Map.Entry<Object, Expirable>> entrySet() {
+        return new EntrySet();
+    }
+
+    private void adjust(final Object key, final Expirable added, final Expirable removed) {
+        long delta = 0;
+        if (added != null) {
+            delta += estimator.estimate(key, added);
+        }
+        if (removed != null) {
+            delta -= estimator.estimate(key, removed);
+        }
+        if (delta != 0) {
+            sizeInMemory.addAndGet(delta);
+        }
+    }
+
+    private final class KeySet extends AbstractSet<Object> {
+
+        @Override
+        public Iterator<Object> iterator() {
+            final Iterator<Object> keys = map.keySet().iterator();
+            return new Iterator<Object>() {
+                private Object current;
+
+                @Override
+                public boolean hasNext() {
+                    return keys.hasNext();
+                }
+
+                @Override
+                public Object next() {
+                    current = keys.next();
+                    return current;
+                }
+
+                @Override
+                public void remove() {
+                    if (current == null) {
+                        throw new IllegalStateException();
+                    }
+                    SizeTrackingMap.this.remove(current);
+                    current = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean contains(final Object key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public boolean remove(final Object key) {
+            return SizeTrackingMap.this.remove(key) != null;
+        }
+    }
+
+    /**
+     * Hands out immutable entries, so values can only be changed through the map.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<Object, Expirable>> {
+
+        @Override
+        public Iterator<Map.Entry<Object, Expirable>> iterator() {
+            final Iterator<Map.Entry<Object, Expirable>> entries = map.entrySet().iterator();
+            return new Iterator<Map.Entry<Object, Expirable>>() {
+                private Map.Entry<Object, Expirable> current;
+
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public Map.Entry<Object, Expirable> next() {
+                    final Map.Entry<Object, Expirable> entry = entries.next();
+                    current = new SimpleImmutableEntry<Object, Expirable>(entry.getKey(), entry.getValue());
+                    return current;
+                }
+
+                @Override
+                public void remove() {
+                    if (current == null) {
+                        throw new IllegalStateException();
+                    }
+                    SizeTrackingMap.this.remove(current.getKey(), current.getValue());
+                    current = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean remove(final Object entry) {
+            if (!(entry instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> e = (Map.Entry<?, ?>) entry;
+            return SizeTrackingMap.this.remove(e.getKey(), e.getValue());
+        }
+    }
+}
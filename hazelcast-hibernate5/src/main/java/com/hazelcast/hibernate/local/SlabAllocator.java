@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.local;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores byte records in direct memory.
+ * <p/>
+ * Memory is reserved in slabs of a fixed size, each of which is carved into chunks of a single size class. Size
+ * classes grow by 25%, which bounds the space wasted per record. Freed chunks are kept on a free list per size
+ * class and reused by later allocations. Reserved slabs are never returned, but a slab whose chunks have all been
+ * freed is taken back from its size class and handed to whichever size class needs a slab next. When no memory is
+ * left for a size class, {@link #victimSlab(int)} tells which slab to empty. Records are addressed by the index of
+ * their slab and their offset within it, and are prefixed with their length.
+ * <p/>
+ * Allocating and freeing is synchronized. Reading is not: callers must make sure a record is not freed while it
+ * is read, and that its write happens-before any read.
+ */
+final class SlabAllocator {
+
+    private static final int LENGTH_BYTES = 4;
+    private static final int ALIGNMENT = 8;
+    private static final int GROWTH_NUMERATOR = 5;
+    private static final int GROWTH_DENOMINATOR = 4;
+    private static final int OFFSET_BITS = 32;
+    private static final long OFFSET_MASK = 0xFFFFFFFFL;
+
+    private final int slabSize;
+    private final int maxSlabs;
+    private final int[] chunkSizes;
+    private final int[] currentSlab;
+    private final int[] carvedOffset;
+    private final long[][] freeChunks;
+    private final int[] freeCounts;
+    // The size class and the number of allocated chunks of each slab, a size class of -1 marks an empty slab
+    private int[] slabClasses = new int[0];
+    private int[] liveChunks = new int[0];
+    private int[] emptySlabs = new int[0];
+    private int emptyCount;
+    private long usedMemory;
+    // Replaced when a slab is added, so records can be read without locking
+    private volatile ByteBuffer[] slabs = new ByteBuffer[0];
+
+    /**
+     * @param maxMemory    the maximum number of bytes to reserve
+     * @param slabSize     the size of each slab, which also bounds the size of a record
+     * @param minChunkSize the size of the smallest chunk
+     */
+    SlabAllocator(final long maxMemory, final int slabSize, final int minChunkSize) {
+        this.slabSize = slabSize;
+        this.maxSlabs = (int) Math.min(Integer.MAX_VALUE, maxMemory / slabSize);
+        this.chunkSizes = chunkSizes(Math.max(ALIGNMENT, minChunkSize), slabSize);
+        currentSlab = new int[chunkSizes.length];
+        Arrays.fill(currentSlab, -1);
+        carvedOffset = new int[chunkSizes.length];
+        freeChunks = new long[chunkSizes.length][];
+        freeCounts = new int[chunkSizes.length];
+    }
+
+    private static int[] chunkSizes(final int minChunkSize, final int slabSize) {
+        final List<Integer> sizes = new ArrayList<Integer>();
+        int size = align(minChunkSize);
+        while (size < slabSize) {
+            sizes.add(size);
+            size = Math.max(size + ALIGNMENT, align((long) size * GROWTH_NUMERATOR / GROWTH_DENOMINATOR));
+        }
+        sizes.add(slabSize);
+        final int[] result = new int[sizes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = sizes.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Stores a record.
+     *
+     * @param record the record to store
+     * @return the address of the stored record, or {@code -1} if the record is too large or the maximum memory
+     * is reached
+     */
+    long store(final byte[] record) {
+        final int sizeClass = sizeClassOf(LENGTH_BYTES + record.length);
+        if (sizeClass < 0) {
+            return -1;
+        }
+        final long address = allocate(sizeClass);
+        if (address >= 0) {
+            final ByteBuffer buffer = slabFor(address).duplicate();
+            buffer.position(offsetOf(address));
+            buffer.putInt(record.length);
+            buffer.put(record);
+        }
+        return address;
+    }
+
+    /**
+     * @param address the address of a stored record
+     * @return a copy of the record
+     */
+    byte[] read(final long address) {
+        final ByteBuffer buffer = slabFor(address).duplicate();
+        buffer.position(offsetOf(address));
+        final byte[] record = new byte[buffer.getInt()];
+        buffer.get(record);
+        return record;
+    }
+
+    /**
+     * @param address the address of a stored record
+     * @param record  the record to compare with
+     * @return {@code true} if the stored record equals the given one
+     */
+    boolean matches(final long address, final byte[] record) {
+        final ByteBuffer buffer = slabFor(address).duplicate();
+        buffer.position(offsetOf(address));
+        if (buffer.getInt() != record.length) {
+            return false;
+        }
+        for (final byte b : record) {
+            if (buffer.get() != b) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the chunk of a stored record to the free list of its size class.
+     *
+     * @param address the address of the stored record
+     */
+    synchronized void free(final long address) {
+        final int sizeClass = sizeClassOf(LENGTH_BYTES + slabFor(address).getInt(offsetOf(address)));
+        long[] chunks = freeChunks[sizeClass];
+        if (chunks == null) {
+            chunks = new long[ALIGNMENT];
+            freeChunks[sizeClass] = chunks;
+        } else if (freeCounts[sizeClass] == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+            freeChunks[sizeClass] = chunks;
+        }
+        chunks[freeCounts[sizeClass]++] = address;
+        usedMemory -= chunkSizes[sizeClass];
+        final int slab = slabOf(address);
+        if (--liveChunks[slab] == 0) {
+            reclaim(slab, sizeClass);
+        }
+    }
+
+    /**
+     * Takes an empty slab back from its size class, dropping its chunks from the free list of the size class.
+     */
+    private void reclaim(final int slab, final int sizeClass) {
+        final long[] chunks = freeChunks[sizeClass];
+        int kept = 0;
+        for (int i = 0; i < freeCounts[sizeClass]; i++) {
+            if (slabOf(chunks[i]) != slab) {
+                chunks[kept++] = chunks[i];
+            }
+        }
+        freeCounts[sizeClass] = kept;
+        if (currentSlab[sizeClass] == slab) {
+            currentSlab[sizeClass] = -1;
+        }
+        slabClasses[slab] = -1;
+        if (emptyCount == emptySlabs.length) {
+            emptySlabs = Arrays.copyOf(emptySlabs, Math.max(ALIGNMENT, emptySlabs.length * 2));
+        }
+        emptySlabs[emptyCount++] = slab;
+    }
+
+    /**
+     * @param recordLength the length of a record
+     * @return the size class a record of the given length is stored in, or {@code -1} if it is too large
+     */
+    int sizeClassFor(final int recordLength) {
+        return sizeClassOf(LENGTH_BYTES + recordLength);
+    }
+
+    /**
+     * @param address the address of a stored record
+     * @return the size class of the chunk at the address
+     */
+    synchronized int sizeClassAt(final long address) {
+        return slabClasses[slabOf(address)];
+    }
+
+    /**
+     * Chooses the slab to empty when no memory is left for a size class: of the size class holding the most slabs,
+     * the slab with the fewest allocated chunks.
+     *
+     * @param sizeClass the size class which needs memory
+     * @return the index of the slab, or {@code -1} if no other size class holds a slab
+     */
+    synchronized int victimSlab(final int sizeClass) {
+        final int[] slabCounts = new int[chunkSizes.length];
+        int largest = -1;
+        for (final int slabClass : slabClasses) {
+            if (slabClass >= 0 && slabClass != sizeClass) {
+                slabCounts[slabClass]++;
+                if (largest < 0 || slabCounts[slabClass] > slabCounts[largest]) {
+                    largest = slabClass;
+                }
+            }
+        }
+        int victim = -1;
+        if (largest >= 0) {
+            for (int slab = 0; slab < slabClasses.length; slab++) {
+                if (slabClasses[slab] == largest && (victim < 0 || liveChunks[slab] < liveChunks[victim])) {
+                    victim = slab;
+                }
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * @param address the address of a stored record
+     * @return the index of the slab holding the record
+     */
+    static int slabOf(final long address) {
+        return (int) (address >>> OFFSET_BITS);
+    }
+
+    /**
+     * @return the number of bytes taken by the chunks of stored records
+     */
+    synchronized long getUsedMemory() {
+        return usedMemory;
+    }
+
+    /**
+     * @return the number of bytes reserved for slabs
+     */
+    long getReservedMemory() {
+        return (long) slabs.length * slabSize;
+    }
+
+    /**
+     * @return the maximum number of bytes which can be reserved
+     */
+    long getMaxMemory() {
+        return (long) maxSlabs * slabSize;
+    }
+
+    private synchronized long allocate(final int sizeClass) {
+        final long address;
+        if (freeCounts[sizeClass] > 0) {
+            address = freeChunks[sizeClass][--freeCounts[sizeClass]];
+        } else {
+            final int chunkSize = chunkSizes[sizeClass];
+            if (currentSlab[sizeClass] < 0 || carvedOffset[sizeClass] + chunkSize > slabSize) {
+                final int slab = takeSlab();
+                if (slab < 0) {
+                    return -1;
+                }
+                slabClasses[slab] = sizeClass;
+                currentSlab[sizeClass] = slab;
+                carvedOffset[sizeClass] = 0;
+            }
+            address = ((long) currentSlab[sizeClass] << OFFSET_BITS) | carvedOffset[sizeClass];
+            carvedOffset[sizeClass] += chunkSize;
+        }
+        liveChunks[slabOf(address)]++;
+        usedMemory += chunkSizes[sizeClass];
+        return address;
+    }
+
+    /**
+     * @return the index of an empty slab, reserving a new one if none is left, or {@code -1} if the maximum memory
+     * is reached
+     */
+    private int takeSlab() {
+        if (emptyCount > 0) {
+            return emptySlabs[--emptyCount];
+        }
+        if (slabs.length >= maxSlabs || !reserveSlab()) {
+            return -1;
+        }
+        slabClasses = Arrays.copyOf(slabClasses, slabs.length);
+        liveChunks = Arrays.copyOf(liveChunks, slabs.length);
+        return slabs.length - 1;
+    }
+
+    @SuppressWarnings("checkstyle:illegalcatch")
+    private boolean reserveSlab() {
+        try {
+            final ByteBuffer slab = ByteBuffer.allocateDirect(slabSize);
+            final ByteBuffer[] grown = Arrays.copyOf(slabs, slabs.length + 1);
+            grown[slabs.length] = slab;
+            slabs = grown;
+            return true;
+        } catch (OutOfMemoryError e) {
+            // Direct memory is exhausted, treat it like reaching the maximum memory
+            return false;
+        }
+    }
+
+    private ByteBuffer slabFor(final long address) {
+        return slabs[slabOf(address)];
+    }
+
+    private int sizeClassOf(final int size) {
+        final int index = Arrays.binarySearch(chunkSizes, size);
+        if (index >= 0) {
+            return index;
+        }
+        final int insertionPoint = -index - 1;
+        return insertionPoint < chunkSizes.length ? insertionPoint : -1;
+    }
+
+    private static int offsetOf(final long address) {
+        return (int) (address & OFFSET_MASK);
+    }
+
+    private static int align(final long size) {
+        return (int) ((size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT);
+    }
+}
@@ -84,6 +84,17 @@ public class TimestampsRegionCache extends LocalRegionCache implements RegionCac
     }
 
     @Override
-    final void cleanup() {
+    final int cleanup(final int limit) {
+        return 0;
+    }
+
+    @Override
+    final float getSizePressure() {
+        return 0F;
+    }
+
+    @Override
+    final void enableExpiry(final long tickMillis) {
+        // Timestamps are never cleaned up, so they do not expire either
     }
 }
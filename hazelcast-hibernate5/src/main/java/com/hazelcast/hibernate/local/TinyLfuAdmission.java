@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.local;
+
+import com.hazelcast.config.EvictionPolicy;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.MaxSizeConfig.MaxSizePolicy;
+import com.hazelcast.hibernate.serialization.Expirable;
+import com.hazelcast.hibernate.serialization.Value;
+import org.hibernate.cache.spi.access.SoftLock;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A W-TinyLFU style admission filter for local region caches.
+ * <p/>
+ * Once the cache is full, new keys first enter a small FIFO window (1% of the capacity), which lets bursts of
+ * recently loaded entries stay cached for a short while. When a key is pushed out of the window it has to compete
+ * with a victim from the main area: the victim is the least frequently used key among a small sample taken from a
+ * rotating cursor over the cache, and the key with the lower {@link FrequencySketch estimated frequency} is evicted.
+ * Keys read repeatedly therefore form a protected segment which one-hit wonders cannot displace, while keys read at
+ * most once make up the probation segment from which victims are taken.
+ * <p/>
+ * The filter is enabled for a region by configuring {@link EvictionPolicy#LFU} and a maximum entry count on the
+ * {@link MapConfig} of the region.
+ */
+final class TinyLfuAdmission {
+
+    private static final int SAMPLE_SIZE = 8;
+    private static final float WINDOW_RATE = 0.01F;
+
+    private final FrequencySketch sketch;
+    private final int maxSize;
+    private final Object[] window;
+    private final Set<Object> windowKeys;
+    private int windowHead;
+    private int windowCount;
+    private Iterator<Object> cursor;
+
+    TinyLfuAdmission(final int maxSize) {
+        this.maxSize = maxSize;
+        sketch = new FrequencySketch(maxSize);
+        window = new Object[Math.max(1, (int) (maxSize * WINDOW_RATE))];
+        windowKeys = new HashSet<Object>();
+    }
+
+    /**
+     * @param config the configuration of the region, may be {@code null}
+     * @return the admission filter to use, or {@code null} if the region is not configured for LFU admission with a
+     *         maximum entry count
+     */
+    static TinyLfuAdmission create(final MapConfig config) {
+        if (config == null || config.getEvictionPolicy() != EvictionPolicy.LFU) {
+            return null;
+        }
+        final MaxSizePolicy policy = config.getMaxSizeConfig().getMaxSizePolicy();
+        final int maxSize = config.getMaxSizeConfig().getSize();
+        if (policy == MaxSizePolicy.USED_HEAP_SIZE || policy == MaxSizePolicy.USED_HEAP_PERCENTAGE
+                || maxSize <= 0 || maxSize == Integer.MAX_VALUE) {
+            return null;
+        }
+        return new TinyLfuAdmission(maxSize);
+    }
+
+    /**
+     * Records a read of the key.
+     *
+     * @param key the key which was read
+     */
+    void recordAccess(final Object key) {
+        sketch.increment(key);
+    }
+
+    /**
+     * Admits a key which is not cached yet into the window. If that pushes another key out of the window, either
+     * that key or a victim from the main area is evicted, whichever is used less frequently.
+     *
+     * @param key   the key about to be added
+     * @param cache the cache the key is about to be added to
+     */
+    void admit(final Object key, final ConcurrentMap<Object, Expirable> cache) {
+        sketch.increment(key);
+        if (cache.size() < maxSize - window.length) {
+            return;
+        }
+        synchronized (this) {
+            final Object candidate = pushToWindow(key);
+            if (candidate == null || !cache.containsKey(candidate)) {
+                return;
+            }
+            final Object victim = sampleVictim(cache);
+            if (victim != null && sketch.frequency(candidate) > sketch.frequency(victim)) {
+                evict(victim, cache);
+            } else {
+                evict(candidate, cache);
+            }
+        }
+    }
+
+    /**
+     * Adds the key to the window, returning the key pushed out of a full window, if any.
+     */
+    private Object pushToWindow(final Object key) {
+        Object evicted = null;
+        if (windowCount == window.length) {
+            evicted = window[windowHead];
+            windowKeys.remove(evicted);
+        } else {
+            windowCount++;
+        }
+        window[windowHead] = key;
+        windowKeys.add(key);
+        windowHead = (windowHead + 1) % window.length;
+        return evicted;
+    }
+
+    private Object sampleVictim(final ConcurrentMap<Object, Expirable> cache) {
+        Object victim = null;
+        int victimFrequency = Integer.MAX_VALUE;
+        int sampled = 0;
+        boolean restarted = false;
+        while (sampled < SAMPLE_SIZE) {
+            if (cursor == null || !cursor.hasNext()) {
+                if (restarted) {
+                    break;
+                }
+                cursor = cache.keySet().iterator();
+                restarted = true;
+                continue;
+            }
+            final Object key = cursor.next();
+            if (windowKeys.contains(key) || !isEvictable(cache.get(key))) {
+                continue;
+            }
+            sampled++;
+            final int frequency = sketch.frequency(key);
+            if (frequency < victimFrequency) {
+                victim = key;
+                victimFrequency = frequency;
+            }
+        }
+        return victim;
+    }
+
+    private static void evict(final Object key, final ConcurrentMap<Object, Expirable> cache) {
+        final Expirable expirable = cache.get(key);
+        if (isEvictable(expirable)) {
+            cache.remove(key, expirable);
+        }
+    }
+
+    static boolean isEvictable(final Expirable expirable) {
+        // Leave expiry markers and soft locks alone, they guard entries which are being updated
+        return expirable instanceof Value && !(expirable.getValue() instanceof SoftLock);
+    }
+}
@@ -17,22 +17,43 @@
 package com.hazelcast.hibernate.region;
 
 import java.io.IOException;
+import java.util.UUID;
 
+import com.hazelcast.core.PartitionAware;
+import com.hazelcast.hibernate.serialization.HibernateDataSerializerHook;
 import com.hazelcast.nio.ObjectDataInput;
 import com.hazelcast.nio.ObjectDataOutput;
-import com.hazelcast.nio.serialization.DataSerializable;
+import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
 import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.type.AbstractStandardBasicType;
 import org.hibernate.type.Type;
 
 /**
  * Cache key implementation
+ * <p/>
+ * Identifiers of the common basic types {@code Long}, {@code Integer}, {@code String} and {@code UUID} are written
+ * in their own compact form and compared by {@code equals}, which is what their Hibernate types do, so the type
+ * itself is only written for other identifiers. The entity or collection-role name is written as its id in the
+ * {@link KeyDictionary} of the session factory, if there is one.
+ * <p/>
+ * A key created to be partitioned by owner is partitioned by its identifier only, which a collection key shares
+ * with the entity owning the collection.
  */
-public final class CacheKeyImpl implements DataSerializable {
+public final class CacheKeyImpl implements IdentifiedDataSerializable, PartitionAware<Object> {
+
+  private static final byte OBJECT_ID = 0;
+  private static final byte LONG_ID = 1;
+  private static final byte INT_ID = 2;
+  private static final byte STRING_ID = 3;
+  private static final byte UUID_ID = 4;
 
   private Object id;
+  private byte idKind;
   private Type type;
   private String entityOrRoleName;
+  private long nameId = KeyDictionary.UNKNOWN;
   private String tenantId;
+  private boolean partitionByOwner;
   private int hashCode;
 
   public CacheKeyImpl() {
@@ -54,40 +75,141 @@ public final class CacheKeyImpl implements DataSerializable {
       final String entityOrRoleName,
       final String tenantId,
       final SessionFactoryImplementor factory) {
+    this(id, type, entityOrRoleName, tenantId, factory, null);
+  }
+
+  CacheKeyImpl(
+      final Object id,
+      final Type type,
+      final String entityOrRoleName,
+      final String tenantId,
+      final SessionFactoryImplementor factory,
+      final KeyDictionary dictionary) {
+    this(id, type, entityOrRoleName, tenantId, factory, dictionary, false);
+  }
+
+  CacheKeyImpl(
+      final Object id,
+      final Type type,
+      final String entityOrRoleName,
+      final String tenantId,
+      final SessionFactoryImplementor factory,
+      final KeyDictionary dictionary,
+      final boolean partitionByOwner) {
     this.id = id;
+    this.idKind = idKindOf(id, type);
     this.type = type;
     this.entityOrRoleName = entityOrRoleName;
+    if (dictionary != null) {
+      this.nameId = dictionary.idOf(entityOrRoleName);
+    }
     this.tenantId = tenantId;
-    this.hashCode = calculateHashCode(type, factory);
+    this.partitionByOwner = partitionByOwner;
+    this.hashCode = calculateHashCode(type.getHashCode(id, factory));
+  }
+
+  private static byte idKindOf(final Object id, final Type type) {
+    if (!(type instanceof AbstractStandardBasicType)) {
+      return OBJECT_ID;
+    }
+    if (id instanceof Long) {
+      return LONG_ID;
+    } else if (id instanceof Integer) {
+      return INT_ID;
+    } else if (id instanceof String) {
+      return STRING_ID;
+    } else if (id instanceof UUID) {
+      return UUID_ID;
+    }
+    return OBJECT_ID;
   }
 
   @SuppressWarnings("checkstyle:magicnumber")
-  private int calculateHashCode(Type type, SessionFactoryImplementor factory) {
-    int result = type.getHashCode(id, factory);
+  private int calculateHashCode(final int idHashCode) {
+    int result = idHashCode;
     result = 31 * result + (tenantId != null ? tenantId.hashCode() : 0);
     return result;
   }
 
-  Object getId() {
+  Object getIdentifier() {
     return id;
   }
 
   @Override
   public void writeData(ObjectDataOutput out) throws IOException {
-    out.writeObject(id);
-    out.writeUTF(entityOrRoleName);
+    out.writeByte(idKind);
+    switch (idKind) {
+      case LONG_ID:
+        out.writeLong((Long) id);
+        break;
+      case INT_ID:
+        out.writeInt((Integer) id);
+        break;
+      case STRING_ID:
+        out.writeUTF((String) id);
+        break;
+      case UUID_ID:
+        out.writeLong(((UUID) id).getMostSignificantBits());
+        out.writeLong(((UUID) id).getLeastSignificantBits());
+        break;
+      default:
+        out.writeObject(id);
+        out.writeObject(type);
+        out.writeInt(hashCode);
+    }
+    out.writeLong(nameId);
+    if (nameId == KeyDictionary.UNKNOWN) {
+      out.writeUTF(entityOrRoleName);
+    }
     out.writeUTF(tenantId);
-    out.writeObject(type);
-    out.writeInt(hashCode);
+    out.writeBoolean(partitionByOwner);
   }
 
   @Override
   public void readData(ObjectDataInput in) throws IOException {
-    id = in.readObject();
-    entityOrRoleName = in.readUTF();
+    idKind = in.readByte();
+    switch (idKind) {
+      case LONG_ID:
+        id = in.readLong();
+        break;
+      case INT_ID:
+        id = in.readInt();
+        break;
+      case STRING_ID:
+        id = in.readUTF();
+        break;
+      case UUID_ID:
+        id = new UUID(in.readLong(), in.readLong());
+        break;
+      default:
+        id = in.readObject();
+        type = in.readObject();
+        hashCode = in.readInt();
+    }
+    nameId = in.readLong();
+    entityOrRoleName = nameId == KeyDictionary.UNKNOWN ? in.readUTF() : KeyDictionary.nameOf(nameId);
     tenantId = in.readUTF();
-    type = in.readObject();
-    hashCode = in.readInt();
+    partitionByOwner = in.readBoolean();
+    if (idKind != OBJECT_ID) {
+      // The basic types of these identifiers hash them like their hashCode
+      hashCode = calculateHashCode(id.hashCode());
+    }
+  }
+
+  @Override
+  public Object getPartitionKey() {
+    // Without a partition key the key is partitioned by its whole content
+    return partitionByOwner ? id : null;
+  }
+
+  @Override
+  public int getFactoryId() {
+    return HibernateDataSerializerHook.F_ID;
+  }
+
+  @Override
+  public int getId() {
+    return HibernateDataSerializerHook.CACHE_KEY;
   }
 
   @Override
@@ -100,16 +222,26 @@ public final class CacheKeyImpl implements DataSerializable {
     }
 
     final CacheKeyImpl that = (CacheKeyImpl) other;
-    if (!type.isEqual(id, that.id)) {
+    if (hashCode != that.hashCode || idKind != that.idKind) {
       return false;
     }
-    if (!entityOrRoleName.equals(that.entityOrRoleName)) {
+    if (idKind == OBJECT_ID ? !type.isEqual(id, that.id) : !id.equals(that.id)) {
+      return false;
+    }
+    if (!isSameRole(that)) {
       return false;
     }
 
     return tenantId != null ? tenantId.equals(that.tenantId) : that.tenantId == null;
   }
 
+  private boolean isSameRole(CacheKeyImpl that) {
+    if (nameId != KeyDictionary.UNKNOWN && that.nameId != KeyDictionary.UNKNOWN) {
+      return nameId == that.nameId;
+    }
+    return entityOrRoleName != null && entityOrRoleName.equals(that.entityOrRoleName);
+  }
+
   @Override
   public int hashCode() {
     return hashCode;
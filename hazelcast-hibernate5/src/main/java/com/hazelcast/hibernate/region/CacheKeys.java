@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.region;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.type.AbstractStandardBasicType;
+import org.hibernate.type.Type;
+
+/**
+ * Creates the entity and collection cache keys of {@code HazelcastCacheKeysFactory}.
+ * <p/>
+ * Keys for {@code long} and {@code int} identifiers of basic types hold them as primitives, so they are compared
+ * without the Hibernate type. Other identifiers, and those of names missing from the dictionary, get a
+ * {@link CacheKeyImpl}. Keys created to be partitioned by owner are partitioned by their identifier.
+ */
+final class CacheKeys {
+
+  private CacheKeys() {
+  }
+
+  static Object createKey(final Object id, final Type type, final String entityOrRoleName, final String tenantId,
+      final SessionFactoryImplementor factory, final KeyDictionary dictionary, final boolean partitionByOwner) {
+    final long nameId = dictionary.idOf(entityOrRoleName);
+    if (nameId != KeyDictionary.UNKNOWN && type instanceof AbstractStandardBasicType) {
+      if (id instanceof Long) {
+        return new LongCacheKey((Long) id, nameId, tenantId, partitionByOwner);
+      } else if (id instanceof Integer) {
+        return new IntCacheKey((Integer) id, nameId, tenantId, partitionByOwner);
+      }
+    }
+    return new CacheKeyImpl(id, type, entityOrRoleName, tenantId, factory, dictionary, partitionByOwner);
+  }
+
+  static Object getIdentifier(final Object cacheKey) {
+    if (cacheKey instanceof PrimitiveCacheKey) {
+      return ((PrimitiveCacheKey) cacheKey).getIdentifier();
+    }
+    return ((CacheKeyImpl) cacheKey).getIdentifier();
+  }
+}
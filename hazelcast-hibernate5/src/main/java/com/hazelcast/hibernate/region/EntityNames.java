@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.hibernate.region;
+
+import java.io.IOException;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import org.hibernate.cache.spi.entry.CacheEntry;
+
+/**
+ * Writes the entity names of cache entries as their id in a {@link KeyDictionary}, and reads them back as the
+ * instances registered with the dictionaries.
+ * <p/>
+ * Names which are not part of any dictionary built on this member are written in full. A member which reads the id
+ * of a name it has not registered, either because it does not run Hibernate or because it does not map the entity,
+ * gets an unresolved name instead. An unresolved name is written back as the same id, so entries pass through such
+ * a member unchanged, and an entry with an unresolved name is treated like a missing entry when read through
+ * Hibernate.
+ */
+public final class EntityNames {
+
+  private static final char UNRESOLVED_MARK = '\u0000';
+
+  private EntityNames() {
+  }
+
+  public static void write(final ObjectDataOutput out, final String name) throws IOException {
+    if (name != null && name.length() > 0 && name.charAt(0) == UNRESOLVED_MARK) {
+      out.writeLong(Long.parseLong(name.substring(1)));
+      return;
+    }
+    final long id = name == null ? KeyDictionary.UNKNOWN : KeyDictionary.registeredIdOf(name);
+    out.writeLong(id);
+    if (id == KeyDictionary.UNKNOWN) {
+      out.writeUTF(name);
+    }
+  }
+
+  public static String read(final ObjectDataInput in) throws IOException {
+    final long id = in.readLong();
+    if (id == KeyDictionary.UNKNOWN) {
+      final String name = in.readUTF();
+      return name == null ? null : name.intern();
+    }
+    final String name = KeyDictionary.nameOf(id);
+    return name != null ? name : UNRESOLVED_MARK + Long.toString(id);
+  }
+
+  /**
+   * @param value a cached value
+   * @return {@code true} if the value is a cache entry whose entity name could not be resolved on this member
+   */
+  public static boolean isUnresolved(final Object value) {
+    if (!(value instanceof CacheEntry)) {
+      return false;
+    }
+    final String name = ((CacheEntry) value).getSubclass();
+    return name != null && name.length() > 0 && name.charAt(0) == UNRESOLVED_MARK;
+  }
+}
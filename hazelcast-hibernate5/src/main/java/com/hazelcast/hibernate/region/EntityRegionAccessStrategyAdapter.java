@@ -16,7 +16,9 @@
 
 package com.hazelcast.hibernate.region;
 
+import com.hazelcast.hibernate.CacheEnvironment;
 import com.hazelcast.hibernate.access.AccessDelegate;
+import com.hazelcast.hibernate.serialization.DetachedReferenceCacheEntry;
 import org.hibernate.cache.CacheException;
 import org.hibernate.cache.spi.CacheKeysFactory;
 import org.hibernate.cache.spi.EntityRegion;
@@ -26,6 +28,8 @@ import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.engine.spi.SessionImplementor;
 import org.hibernate.persister.entity.EntityPersister;
 
+import java.util.Properties;
+
 /**
  * Simple adapter implementation for transactional / concurrent access control on entities
  */
@@ -33,10 +37,22 @@ public final class EntityRegionAccessStrategyAdapter implements EntityRegionAcce
 
     private final AccessDelegate<? extends HazelcastEntityRegion> delegate;
 
-    private final CacheKeysFactory cacheKeysFactory = new HazelcastCacheKeysFactory();
+    private final CacheKeysFactory cacheKeysFactory;
 
     public EntityRegionAccessStrategyAdapter(final AccessDelegate<? extends HazelcastEntityRegion> delegate) {
         this.delegate = delegate;
+        this.cacheKeysFactory = new HazelcastCacheKeysFactory();
+    }
+
+    /**
+     * @param delegate the access delegate
+     * @param props    the region properties, which tell whether keys are partitioned by owner, see
+     *                 {@link CacheEnvironment#PARTITION_BY_OWNER}
+     */
+    public EntityRegionAccessStrategyAdapter(final AccessDelegate<? extends HazelcastEntityRegion> delegate,
+                                             final Properties props) {
+        this.delegate = delegate;
+        this.cacheKeysFactory = new HazelcastCacheKeysFactory(CacheEnvironment.isPartitionByOwnerEnabled(props));
     }
 
     @Override
@@ -71,7 +87,7 @@ public final class EntityRegionAccessStrategyAdapter implements EntityRegionAcce
     @Override
     public Object get(final SessionImplementor session, final Object key, final long txTimestamp)
             throws CacheException {
-        return delegate.get(key, txTimestamp);
+        return resolve(session, delegate.get(key, txTimestamp));
     }
 
     @Override
@@ -140,4 +156,15 @@ public final class EntityRegionAccessStrategyAdapter implements EntityRegionAcce
                           final Object currentVersion, final Object previousVersion) throws CacheException {
         return delegate.update(key, value, currentVersion, previousVersion);
     }
+
+    /**
+     * Reference entries read from a distributed region come without the persister of their entity, which is looked
+     * up again in the session factory.
+     */
+    private static Object resolve(final SessionImplementor session, final Object value) {
+        if (value instanceof DetachedReferenceCacheEntry) {
+            return ((DetachedReferenceCacheEntry) value).resolve(session.getFactory());
+        }
+        return value;
+    }
 }
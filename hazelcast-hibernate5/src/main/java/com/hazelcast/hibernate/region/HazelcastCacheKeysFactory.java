@@ -25,18 +25,35 @@ import org.hibernate.persister.entity.EntityPersister;
 
 /**
  * Cache key factory.
+ * <p/>
+ * When partitioning by owner, entity and collection keys are {@link com.hazelcast.core.PartitionAware} and
+ * partitioned by their identifier, which for a collection is the identifier of its owner. An entity and its
+ * collections are then stored in the same partition.
  */
 public class HazelcastCacheKeysFactory implements CacheKeysFactory {
 
+  private final boolean partitionByOwner;
+  private volatile KeyDictionary dictionary;
+
+  public HazelcastCacheKeysFactory() {
+    this(false);
+  }
+
+  public HazelcastCacheKeysFactory(boolean partitionByOwner) {
+    this.partitionByOwner = partitionByOwner;
+  }
+
   @Override
   public Object createCollectionKey(Object id, CollectionPersister persister, SessionFactoryImplementor factory,
       String tenantId) {
-    return new CacheKeyImpl(id, persister.getKeyType(), persister.getRole(), tenantId, factory);
+    return CacheKeys.createKey(id, persister.getKeyType(), persister.getRole(), tenantId, factory,
+        dictionaryOf(factory), partitionByOwner);
   }
 
   @Override
   public Object createEntityKey(Object id, EntityPersister persister, SessionFactoryImplementor factory, String tenantId) {
-    return new CacheKeyImpl(id, persister.getIdentifierType(), persister.getRootEntityName(), tenantId, factory);
+    return CacheKeys.createKey(id, persister.getIdentifierType(), persister.getRootEntityName(), tenantId,
+        factory, dictionaryOf(factory), partitionByOwner);
   }
 
   @Override
@@ -47,16 +64,25 @@ public class HazelcastCacheKeysFactory implements CacheKeysFactory {
 
   @Override
   public Object getEntityId(Object cacheKey) {
-    return ((CacheKeyImpl) cacheKey).getId();
+    return CacheKeys.getIdentifier(cacheKey);
   }
 
   @Override
   public Object getCollectionId(Object cacheKey) {
-    return ((CacheKeyImpl) cacheKey).getId();
+    return CacheKeys.getIdentifier(cacheKey);
   }
 
   @Override
   public Object[] getNaturalIdValues(Object cacheKey) {
     return ((NaturalIdCacheKey) cacheKey).getNaturalIdValues();
   }
+
+  private KeyDictionary dictionaryOf(SessionFactoryImplementor factory) {
+    KeyDictionary current = dictionary;
+    if (current == null || !current.isOf(factory)) {
+      current = KeyDictionary.of(factory);
+      dictionary = current;
+    }
+    return current;
+  }
 }
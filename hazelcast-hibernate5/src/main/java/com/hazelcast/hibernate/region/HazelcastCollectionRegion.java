@@ -48,15 +48,15 @@ public final class HazelcastCollectionRegion<Cache extends RegionCache> extends
     public CollectionRegionAccessStrategy buildAccessStrategy(final AccessType accessType) throws CacheException {
         if (AccessType.READ_ONLY.equals(accessType)) {
             return new CollectionRegionAccessStrategyAdapter(
-                    new ReadOnlyAccessDelegate<HazelcastCollectionRegion>(this, props));
+                    new ReadOnlyAccessDelegate<HazelcastCollectionRegion>(this, props), props);
         }
         if (AccessType.NONSTRICT_READ_WRITE.equals(accessType)) {
             return new CollectionRegionAccessStrategyAdapter(
-                    new NonStrictReadWriteAccessDelegate<HazelcastCollectionRegion>(this, props));
+                    new NonStrictReadWriteAccessDelegate<HazelcastCollectionRegion>(this, props), props);
         }
         if (AccessType.READ_WRITE.equals(accessType)) {
             return new CollectionRegionAccessStrategyAdapter(
-                    new ReadWriteAccessDelegate<HazelcastCollectionRegion>(this, props));
+                    new ReadWriteAccessDelegate<HazelcastCollectionRegion>(this, props), props);
         }
         throw new CacheException("AccessType \"" + accessType + "\" is not currently supported by Hazelcast.");
     }
@@ -48,15 +48,15 @@ public final class HazelcastEntityRegion<Cache extends RegionCache>
     public EntityRegionAccessStrategy buildAccessStrategy(final AccessType accessType) throws CacheException {
         if (AccessType.READ_ONLY.equals(accessType)) {
             return new EntityRegionAccessStrategyAdapter(
-                    new ReadOnlyAccessDelegate<HazelcastEntityRegion>(this, props));
+                    new ReadOnlyAccessDelegate<HazelcastEntityRegion>(this, props), props);
         }
         if (AccessType.NONSTRICT_READ_WRITE.equals(accessType)) {
             return new EntityRegionAccessStrategyAdapter(
-                    new NonStrictReadWriteAccessDelegate<HazelcastEntityRegion>(this, props));
+                    new NonStrictReadWriteAccessDelegate<HazelcastEntityRegion>(this, props), props);
         }
         if (AccessType.READ_WRITE.equals(accessType)) {
             return new EntityRegionAccessStrategyAdapter(
-                    new ReadWriteAccessDelegate<HazelcastEntityRegion>(this, props));
+                    new ReadWriteAccessDelegate<HazelcastEntityRegion>(this, props), props);
         }
         throw new CacheException("AccessType \"" + accessType + "\" is not currently supported by Hazelcast.");
     }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.region;
+
+import java.io.IOException;
+
+import com.hazelcast.hibernate.serialization.HibernateDataSerializerHook;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+
+/**
+ * Cache key implementation for {@code int} identifiers
+ */
+public final class IntCacheKey extends PrimitiveCacheKey {
+
+  private int id;
+  private int hashCode;
+
+  public IntCacheKey() {
+  }
+
+  IntCacheKey(final int id, final long nameId, final String tenantId, final boolean partitionByOwner) {
+    super(nameId, tenantId, partitionByOwner);
+    this.id = id;
+    this.hashCode = calculateHashCode(id);
+  }
+
+  @Override
+  Object getIdentifier() {
+    return id;
+  }
+
+  @Override
+  public void writeData(final ObjectDataOutput out) throws IOException {
+    out.writeInt(id);
+    writeRoleAndTenant(out);
+  }
+
+  @Override
+  public void readData(final ObjectDataInput in) throws IOException {
+    id = in.readInt();
+    readRoleAndTenant(in);
+    hashCode = calculateHashCode(id);
+  }
+
+  @Override
+  public int getId() {
+    return HibernateDataSerializerHook.INT_CACHE_KEY;
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (other == null || getClass() != other.getClass()) {
+      return false;
+    }
+    final IntCacheKey that = (IntCacheKey) other;
+    return id == that.id && isSameRoleAndTenant(that);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.region;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+/**
+ * Numbers the entity and collection-role names of a session factory, so cache keys and cache entries can refer to
+ * them by id.
+ * <p/>
+ * The id of a name is a 64-bit hash of the name alone, so every member derives the same id for a name whatever
+ * else it maps, and members with different mappings still use the same keys for the names they share. The names
+ * of all dictionaries built on a member are registered by their id, which is how a member resolves an id read back.
+ * <p/>
+ * Two names of this member with the same id are detected when registered: neither of them is referred to by id from
+ * then on, they are written in full instead. A collision between a name mapped on one member only and another name
+ * mapped on another member only cannot be detected. The ids are wide enough that such a collision is not expected,
+ * but members are assumed to map distinct entities and collection roles under distinct names.
+ */
+final class KeyDictionary {
+
+  /**
+   * The id of names which are written in full
+   */
+  static final long UNKNOWN = 0L;
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private static final ConcurrentMap<Long, String> NAMES = new ConcurrentHashMap<Long, String>();
+  private static final Set<Long> COLLIDING = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+  private final WeakReference<SessionFactoryImplementor> factory;
+  private final Map<String, Long> ids;
+
+  private KeyDictionary(final SessionFactoryImplementor factory, final Set<String> names) {
+    this.factory = new WeakReference<SessionFactoryImplementor>(factory);
+    this.ids = new HashMap<String, Long>();
+    for (final String name : names) {
+      final long id = hash(name);
+      if (id == UNKNOWN) {
+        continue;
+      }
+      final String registered = NAMES.putIfAbsent(id, name);
+      if (registered != null && !registered.equals(name)) {
+        COLLIDING.add(id);
+      }
+      ids.put(name, id);
+    }
+  }
+
+  /**
+   * @param factory the session factory
+   * @return a dictionary of the entity and collection-role names of the session factory
+   */
+  @SuppressWarnings("unchecked")
+  static KeyDictionary of(final SessionFactoryImplementor factory) {
+    final Set<String> names = new HashSet<String>();
+    names.addAll(factory.getAllClassMetadata().keySet());
+    names.addAll(factory.getAllCollectionMetadata().keySet());
+    return new KeyDictionary(factory, names);
+  }
+
+  /**
+   * @param id the id of a name
+   * @return the name registered on this member with the id, or {@code null} if there is none or the id collides
+   */
+  static String nameOf(final long id) {
+    return COLLIDING.contains(id) ? null : NAMES.get(id);
+  }
+
+  /**
+   * @param name an entity or collection-role name
+   * @return the id of the name if it is part of a dictionary built on this member, or {@link #UNKNOWN} otherwise
+   */
+  static long registeredIdOf(final String name) {
+    final long id = hash(name);
+    return name.equals(nameOf(id)) ? id : UNKNOWN;
+  }
+
+  boolean isOf(final SessionFactoryImplementor factory) {
+    return this.factory.get() == factory;
+  }
+
+  /**
+   * @param name an entity or collection-role name
+   * @return the id of the name, or {@link #UNKNOWN} if it is not part of this dictionary or its id collides
+   */
+  long idOf(final String name) {
+    final Long id = ids.get(name);
+    return id == null || COLLIDING.contains(id) ? UNKNOWN : id;
+  }
+
+  /**
+   * FNV-1a hash of the characters of the name
+   */
+  static long hash(final String name) {
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = 0; i < name.length(); i++) {
+      hash ^= name.charAt(i);
+      hash *= FNV_PRIME;
+    }
+    return hash;
+  }
+}
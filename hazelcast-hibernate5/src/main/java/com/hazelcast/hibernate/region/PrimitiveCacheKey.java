@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.region;
+
+import java.io.IOException;
+
+import com.hazelcast.core.PartitionAware;
+import com.hazelcast.hibernate.serialization.HibernateDataSerializerHook;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
+
+/**
+ * Base class of the cache keys for primitive identifiers, which refer to their entity or collection role by its
+ * id in a {@link KeyDictionary} only.
+ */
+abstract class PrimitiveCacheKey implements IdentifiedDataSerializable, PartitionAware<Object> {
+
+  private long nameId;
+  private String tenantId;
+  private boolean partitionByOwner;
+
+  PrimitiveCacheKey() {
+  }
+
+  PrimitiveCacheKey(final long nameId, final String tenantId, final boolean partitionByOwner) {
+    this.nameId = nameId;
+    this.tenantId = tenantId;
+    this.partitionByOwner = partitionByOwner;
+  }
+
+  /**
+   * @return the boxed identifier, as handed out to Hibernate
+   */
+  abstract Object getIdentifier();
+
+  @SuppressWarnings("checkstyle:magicnumber")
+  int calculateHashCode(final int idHashCode) {
+    return 31 * idHashCode + (tenantId != null ? tenantId.hashCode() : 0);
+  }
+
+  boolean isSameRoleAndTenant(final PrimitiveCacheKey that) {
+    if (nameId != that.nameId) {
+      return false;
+    }
+    return tenantId != null ? tenantId.equals(that.tenantId) : that.tenantId == null;
+  }
+
+  void writeRoleAndTenant(final ObjectDataOutput out) throws IOException {
+    out.writeLong(nameId);
+    out.writeUTF(tenantId);
+    out.writeBoolean(partitionByOwner);
+  }
+
+  void readRoleAndTenant(final ObjectDataInput in) throws IOException {
+    nameId = in.readLong();
+    tenantId = in.readUTF();
+    partitionByOwner = in.readBoolean();
+  }
+
+  @Override
+  public Object getPartitionKey() {
+    // Without a partition key the key is partitioned by its whole content
+    return partitionByOwner ? getIdentifier() : null;
+  }
+
+  @Override
+  public int getFactoryId() {
+    return HibernateDataSerializerHook.F_ID;
+  }
+
+  @Override
+  public String toString() {
+    return KeyDictionary.nameOf(nameId) + '#' + getIdentifier();
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.hibernate.serialization;
+
+import com.hazelcast.hibernate.region.EntityNames;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import org.hibernate.MappingException;
+import org.hibernate.cache.spi.entry.CacheEntry;
+import org.hibernate.cache.spi.entry.ReferenceCacheEntryImpl;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * A reference {@code CacheEntry} as read from its serialized form, which holds the cached entity and its entity name
+ * but not its persister.
+ * <p/>
+ * Hibernate's {@code ReferenceCacheEntryImpl} refers to the {@code EntityPersister} of the entity, which is not
+ * serializable. Instead, the entity is written with {@code ObjectDataOutput.writeObject(Object)}, so it goes through
+ * whichever Hazelcast serializer is registered for its type, and the entity name is written by {@link EntityNames}.
+ * The persister is looked up again by {@link #resolve(SessionFactoryImplementor)} when the entry is read through
+ * Hibernate.
+ */
+public final class DetachedReferenceCacheEntry implements CacheEntry {
+
+    private final Object reference;
+    private final String subclass;
+
+    DetachedReferenceCacheEntry(final Object reference, final String subclass) {
+        this.reference = reference;
+        this.subclass = subclass;
+    }
+
+    static void write(final ObjectDataOutput out, final CacheEntry entry) throws IOException {
+        EntityNames.write(out, entry.getSubclass());
+        if (entry instanceof DetachedReferenceCacheEntry) {
+            out.writeObject(((DetachedReferenceCacheEntry) entry).reference);
+        } else {
+            out.writeObject(((ReferenceCacheEntryImpl) entry).getReference());
+        }
+    }
+
+    static CacheEntry read(final ObjectDataInput in) throws IOException {
+        final String subclass = EntityNames.read(in);
+        return new DetachedReferenceCacheEntry(in.readObject(), subclass);
+    }
+
+    /**
+     * @param factory the session factory to look the persister of the entity up in
+     * @return a {@code ReferenceCacheEntryImpl} of the entity, or {@code null} if the entity is not mapped for
+     * reference caching by the factory
+     */
+    public CacheEntry resolve(final SessionFactoryImplementor factory) {
+        if (EntityNames.isUnresolved(this)) {
+            return null;
+        }
+        final EntityPersister persister;
+        try {
+            persister = factory.getEntityPersister(subclass);
+        } catch (MappingException e) {
+            return null;
+        }
+        return persister.canUseReferenceCacheEntries() ? new ReferenceCacheEntryImpl(reference, persister) : null;
+    }
+
+    public Object getReference() {
+        return reference;
+    }
+
+    @Override
+    public boolean isReferenceEntry() {
+        return true;
+    }
+
+    @Override
+    public String getSubclass() {
+        return subclass;
+    }
+
+    @Override
+    public Object getVersion() {
+        return null;
+    }
+
+    /**
+     * Part of the interface up to Hibernate 5.1, unused by later versions.
+     *
+     * @return {@code false}, as reference entries are never lazy
+     */
+    public boolean areLazyPropertiesUnfetched() {
+        return false;
+    }
+
+    @Override
+    public Serializable[] getDisassembledState() {
+        return null;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.hibernate.serialization;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Writes the disassembled state of a {@code CacheEntry} in columns.
+ * <p/>
+ * The state starts with the kind of each of its values, packed into four bits per value, followed by the values
+ * of the common kinds in their raw form. Nulls and booleans need no more than their kind. Values of other types
+ * are written with {@link ObjectDataOutput#writeObject(Object)}, which would otherwise write a serializer type id
+ * ahead of each value and look its serializer up.
+ * <p/>
+ * Entries are read by whichever member or client asks for them first, so each entry carries its own layout rather
+ * than referring to one learned for its subclass.
+ */
+final class DisassembledState {
+
+    private static final int NULL = 0;
+    private static final int OBJECT = 1;
+    private static final int LONG = 2;
+    private static final int INTEGER = 3;
+    private static final int STRING = 4;
+    private static final int TRUE = 5;
+    private static final int FALSE = 6;
+    private static final int SHORT = 7;
+    private static final int BYTE = 8;
+    private static final int DOUBLE = 9;
+    private static final int FLOAT = 10;
+    private static final int CHARACTER = 11;
+
+    private static final int KIND_BITS = 4;
+    private static final int KIND_MASK = 0x0F;
+
+    private DisassembledState() {
+    }
+
+    static void write(final ObjectDataOutput out, final Serializable[] state) throws IOException {
+        out.writeInt(state.length);
+        final byte[] kinds = new byte[(state.length + 1) / 2];
+        for (int i = 0; i < state.length; i++) {
+            kinds[i / 2] |= kindOf(state[i]) << (i % 2 * KIND_BITS);
+        }
+        out.write(kinds);
+        for (int i = 0; i < state.length; i++) {
+            writeValue(out, (kinds[i / 2] >> (i % 2 * KIND_BITS)) & KIND_MASK, state[i]);
+        }
+    }
+
+    static Serializable[] read(final ObjectDataInput in) throws IOException {
+        final Serializable[] state = new Serializable[in.readInt()];
+        final byte[] kinds = new byte[(state.length + 1) / 2];
+        in.readFully(kinds);
+        for (int i = 0; i < state.length; i++) {
+            state[i] = readValue(in, (kinds[i / 2] >> (i % 2 * KIND_BITS)) & KIND_MASK);
+        }
+        return state;
+    }
+
+    @SuppressWarnings("checkstyle:cyclomaticcomplexity")
+    private static int kindOf(final Serializable value) {
+        if (value == null) {
+            return NULL;
+        } else if (value instanceof Long) {
+            return LONG;
+        } else if (value instanceof Integer) {
+            return INTEGER;
+        } else if (value instanceof String) {
+            return STRING;
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? TRUE : FALSE;
+        } else if (value instanceof Short) {
+            return SHORT;
+        } else if (value instanceof Byte) {
+            return BYTE;
+        } else if (value instanceof Double) {
+            return DOUBLE;
+        } else if (value instanceof Float) {
+            return FLOAT;
+        } else if (value instanceof Character) {
+            return CHARACTER;
+        }
+        return OBJECT;
+    }
+
+    @SuppressWarnings("checkstyle:cyclomaticcomplexity")
+    private static void writeValue(final ObjectDataOutput out, final int kind, final Serializable value)
+            throws IOException {
+        switch (kind) {
+            case LONG:
+                out.writeLong((Long) value);
+                break;
+            case INTEGER:
+                out.writeInt((Integer) value);
+                break;
+            case STRING:
+                out.writeUTF((String) value);
+                break;
+            case SHORT:
+                out.writeShort((Short) value);
+                break;
+            case BYTE:
+                out.writeByte((Byte) value);
+                break;
+            case DOUBLE:
+                out.writeDouble((Double) value);
+                break;
+            case FLOAT:
+                out.writeFloat((Float) value);
+                break;
+            case CHARACTER:
+                out.writeChar((Character) value);
+                break;
+            case OBJECT:
+                out.writeObject(value);
+                break;
+            default:
+                // Nulls and booleans are fully described by their kind
+        }
+    }
+
+    @SuppressWarnings("checkstyle:cyclomaticcomplexity")
+    private static Serializable readValue(final ObjectDataInput in, final int kind) throws IOException {
+        switch (kind) {
+            case NULL:
+                return null;
+            case LONG:
+                return in.readLong();
+            case INTEGER:
+                return in.readInt();
+            case STRING:
+                return in.readUTF();
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case SHORT:
+                return in.readShort();
+            case BYTE:
+                return in.readByte();
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case CHARACTER:
+                return in.readChar();
+            case OBJECT:
+                return in.readObject();
+            default:
+                throw new IOException("Unknown kind of disassembled value: " + kind);
+        }
+    }
+}
@@ -16,11 +16,18 @@
 
 package com.hazelcast.hibernate.serialization;
 
+import com.hazelcast.hibernate.distributed.CompressedValue;
 import com.hazelcast.hibernate.distributed.LockEntryProcessor;
+import com.hazelcast.hibernate.distributed.OwnedEntryStatsTask;
+import com.hazelcast.hibernate.distributed.PutFromLoadEntryProcessor;
 import com.hazelcast.hibernate.distributed.UnlockEntryProcessor;
 import com.hazelcast.hibernate.distributed.UpdateEntryProcessor;
 import com.hazelcast.hibernate.local.Invalidation;
+import com.hazelcast.hibernate.local.InvalidationBatch;
 import com.hazelcast.hibernate.local.Timestamp;
+import com.hazelcast.hibernate.region.CacheKeyImpl;
+import com.hazelcast.hibernate.region.IntCacheKey;
+import com.hazelcast.hibernate.region.LongCacheKey;
 import com.hazelcast.nio.serialization.DataSerializableFactory;
 import com.hazelcast.internal.serialization.DataSerializerHook;
 import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
@@ -65,6 +72,34 @@ public class HibernateDataSerializerHook implements DataSerializerHook {
      * @see Timestamp
      */
     public static final int TIMESTAMP = 6;
+    /**
+     * @see InvalidationBatch
+     */
+    public static final int INVALIDATION_BATCH = 7;
+    /**
+     * @see PutFromLoadEntryProcessor
+     */
+    public static final int PUT_FROM_LOAD = 8;
+    /**
+     * @see OwnedEntryStatsTask
+     */
+    public static final int OWNED_ENTRY_STATS = 9;
+    /**
+     * @see CacheKeyImpl
+     */
+    public static final int CACHE_KEY = 10;
+    /**
+     * @see LongCacheKey
+     */
+    public static final int LONG_CACHE_KEY = 11;
+    /**
+     * @see IntCacheKey
+     */
+    public static final int INT_CACHE_KEY = 12;
+    /**
+     * @see CompressedValue
+     */
+    public static final int COMPRESSED_VALUE = 13;
 
     @Override
     public int getFactoryId() {
@@ -102,6 +137,27 @@ public class HibernateDataSerializerHook implements DataSerializerHook {
                 case TIMESTAMP:
                     result = new Timestamp();
                     break;
+                case INVALIDATION_BATCH:
+                    result = new InvalidationBatch();
+                    break;
+                case PUT_FROM_LOAD:
+                    result = new PutFromLoadEntryProcessor();
+                    break;
+                case OWNED_ENTRY_STATS:
+                    result = new OwnedEntryStatsTask();
+                    break;
+                case CACHE_KEY:
+                    result = new CacheKeyImpl();
+                    break;
+                case LONG_CACHE_KEY:
+                    result = new LongCacheKey();
+                    break;
+                case INT_CACHE_KEY:
+                    result = new IntCacheKey();
+                    break;
+                case COMPRESSED_VALUE:
+                    result = new CompressedValue();
+                    break;
                 default:
                     result = null;
             }
@@ -16,18 +16,28 @@
 
 package com.hazelcast.hibernate.serialization;
 
+import com.hazelcast.internal.serialization.InternalSerializationService;
 import com.hazelcast.nio.ObjectDataInput;
 import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.Data;
+
 import java.io.IOException;
 import java.util.Comparator;
 
 /**
  * A value within a region cache
+ * <p/>
+ * A value read from its serialized form decodes its version and timestamp only, and keeps the cached value in its
+ * serialized form until it is asked for. Entries which are rejected because of their timestamp, and entry processors
+ * which only replace or expire the entry, never deserialize the cached value, and writing such a value again copies
+ * the serialized form as it is.
  */
 public class Value extends Expirable {
 
     private long timestamp;
-    private Object value;
+    private volatile Object value;
+    private volatile Data data;
+    private InternalSerializationService serializationService;
 
     public Value() {
     }
@@ -53,12 +63,23 @@ public class Value extends Expirable {
 
     @Override
     public Object getValue() {
-        return value;
+        Object result = value;
+        if (result == null) {
+            final Data serialized = data;
+            if (serialized == null) {
+                // Either there is no value, or it was deserialized concurrently and set before the data was cleared
+                return value;
+            }
+            result = serializationService.toObject(serialized);
+            value = result;
+            data = null;
+        }
+        return result;
     }
 
     @Override
     public Object getValue(final long txTimestamp) {
-        return timestamp <= txTimestamp ? value : null;
+        return timestamp <= txTimestamp ? getValue() : null;
     }
 
     @Override
@@ -75,14 +96,16 @@ public class Value extends Expirable {
     public void readData(final ObjectDataInput in) throws IOException {
         super.readData(in);
         timestamp = in.readLong();
-        value = in.readObject();
+        data = in.readData();
+        serializationService = in.getSerializationService();
     }
 
     @Override
     public void writeData(final ObjectDataOutput out) throws IOException {
         super.writeData(out);
         out.writeLong(timestamp);
-        out.writeObject(value);
+        final Data serialized = data;
+        out.writeData(serialized != null ? serialized : out.getSerializationService().toData(value));
     }
 
     @Override
@@ -0,0 +1,79 @@
+package com.hazelcast.hibernate;
+
+import com.hazelcast.core.Cluster;
+import com.hazelcast.core.HazelcastInstance;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class CachedClusterClockTest {
+
+    private static final long CLUSTER_TIME = 1000000L;
+
+    private final HazelcastInstance instance = mock(HazelcastInstance.class);
+    private final Cluster cluster = mock(Cluster.class);
+    private CachedClusterClock clock;
+
+    @Before
+    public void setUp() {
+        when(instance.getName()).thenReturn("instance");
+        when(instance.getCluster()).thenReturn(cluster);
+        when(cluster.getClusterTime()).thenReturn(CLUSTER_TIME);
+    }
+
+    @After
+    public void tearDown() {
+        clock.stop();
+    }
+
+    @Test
+    public void testTimestampsAreDerivedFromSample() {
+        clock = new CachedClusterClock(instance, 60000L);
+        clock.start();
+
+        long timestamp = clock.nextTimestamp();
+        assertTrue(timestamp >= CLUSTER_TIME && timestamp < CLUSTER_TIME + 60000L);
+        clock.nextTimestamp();
+
+        verify(cluster, times(1)).getClusterTime();
+    }
+
+    @Test
+    public void testStaleSampleIsRefreshedByCaller() throws InterruptedException {
+        clock = new CachedClusterClock(instance, 10L);
+        clock.start();
+        // Without the background refresh, only the calling thread can refresh the sample
+        clock.stop();
+        when(cluster.getClusterTime()).thenReturn(CLUSTER_TIME + 5000L);
+        Thread.sleep(50L);
+
+        assertEquals(CLUSTER_TIME + 5000L, clock.nextTimestamp());
+    }
+
+    @Test
+    public void testClockIsUsableBeforeStarted() {
+        clock = new CachedClusterClock(instance, 60000L);
+
+        assertEquals(CLUSTER_TIME, clock.nextTimestamp());
+    }
+
+    @Test
+    public void testRegisteredSourceIsUsedByTimestamper() {
+        clock = new CachedClusterClock(instance, 60000L);
+        clock.start();
+        assertTrue(HazelcastTimestamper.registerTimestampSource(instance, clock));
+        assertFalse(HazelcastTimestamper.registerTimestampSource(instance, mock(TimestampSource.class)));
+        try {
+            HazelcastTimestamper.nextTimestamp(instance);
+            verify(cluster, times(1)).getClusterTime();
+        } finally {
+            HazelcastTimestamper.deregisterTimestampSource(instance, clock);
+        }
+
+        HazelcastTimestamper.nextTimestamp(instance);
+        verify(cluster, times(2)).getClusterTime();
+    }
+}
@@ -3,6 +3,7 @@ package com.hazelcast.hibernate.access;
 import com.hazelcast.core.HazelcastException;
 import com.hazelcast.hibernate.HibernateTestSupport;
 import com.hazelcast.hibernate.RegionCache;
+import com.hazelcast.hibernate.distributed.IMapRegionCache;
 import com.hazelcast.hibernate.region.HazelcastRegion;
 import com.hazelcast.logging.ILogger;
 import com.hazelcast.logging.Logger;
@@ -17,6 +18,8 @@ import org.junit.runner.RunWith;
 import static org.junit.Assert.assertFalse;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(HazelcastParallelClassRunner.class)
@@ -40,6 +43,20 @@ public class ReadWriteAccessDelegateTest extends HibernateTestSupport {
         delegate = new ReadWriteAccessDelegate<HazelcastRegion>(region, null);
     }
 
+    @Test
+    public void testNearCacheIsOnlyEnabledForNonStrictAccess() {
+        IMapRegionCache mapCache = mock(IMapRegionCache.class);
+        HazelcastRegion region = mock(HazelcastRegion.class);
+        when(region.getLogger()).thenReturn(Logger.getLogger(ReadWriteAccessDelegateTest.class));
+        when(region.getCache()).thenReturn(mapCache);
+
+        new ReadWriteAccessDelegate<HazelcastRegion>(region, null);
+        verify(mapCache, never()).enableNearCache();
+
+        new NonStrictReadWriteAccessDelegate<HazelcastRegion>(region, null);
+        verify(mapCache).enableNearCache();
+    }
+
     @Test
     public void testAfterInsert() {
         when(cache.insert(any(), any(), any())).thenThrow(new HazelcastException("expected exception"));
@@ -0,0 +1,175 @@
+package com.hazelcast.hibernate.distributed;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IExecutorService;
+import com.hazelcast.core.IMap;
+import com.hazelcast.core.Member;
+import com.hazelcast.monitor.LocalMapStats;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+public class ClusterMapStatisticsTest {
+
+    private final HazelcastInstance instance = mock(HazelcastInstance.class);
+    private final IExecutorService executor = mock(IExecutorService.class);
+
+    @Before
+    public void setUp() {
+        when(instance.getExecutorService(ClusterMapStatistics.EXECUTOR_NAME)).thenReturn(executor);
+    }
+
+    @Test
+    public void testStatisticsAreSummedOverMembers() throws Exception {
+        Map<Member, Future<long[]>> futures = new HashMap<Member, Future<long[]>>();
+        futures.put(mock(Member.class), completed(10L, 100L));
+        futures.put(mock(Member.class), completed(20L, 200L));
+        when(executor.submitToAllMembers(any(OwnedEntryStatsTask.class))).thenReturn(futures);
+        ClusterMapStatistics statistics = new ClusterMapStatistics(instance, "region", 0L);
+
+        assertEquals(300L, statistics.getOwnedEntryMemoryCost());
+        assertEquals(30L, statistics.getOwnedEntryCount());
+    }
+
+    @Test
+    public void testMemoryCostIsKeptForRefreshInterval() throws Exception {
+        Map<Member, Future<long[]>> futures = new HashMap<Member, Future<long[]>>();
+        futures.put(mock(Member.class), completed(10L, 100L));
+        when(executor.submitToAllMembers(any(OwnedEntryStatsTask.class))).thenReturn(futures);
+        ClusterMapStatistics statistics = new ClusterMapStatistics(instance, "region", 60000L);
+
+        assertEquals(100L, statistics.getOwnedEntryMemoryCost());
+        assertEquals(10L, statistics.getOwnedEntryCount());
+        assertEquals(100L, statistics.getOwnedEntryMemoryCost());
+
+        verify(executor, times(1)).submitToAllMembers(any(OwnedEntryStatsTask.class));
+    }
+
+    @Test
+    public void testFailedCollectionIsReportedAsUnknown() throws Exception {
+        Future<long[]> future = mock(Future.class);
+        when(future.get(anyLong(), any(TimeUnit.class))).thenThrow(new ExecutionException(new IllegalStateException("expected")));
+        Map<Member, Future<long[]>> futures = new HashMap<Member, Future<long[]>>();
+        futures.put(mock(Member.class), future);
+        when(executor.submitToAllMembers(any(OwnedEntryStatsTask.class))).thenReturn(futures);
+
+        ClusterMapStatistics statistics = new ClusterMapStatistics(instance, "region", 0L);
+        assertEquals(-1L, statistics.getOwnedEntryMemoryCost());
+        assertEquals(-1L, statistics.getOwnedEntryCount());
+    }
+
+    @Test
+    public void testMembersNotRespondingInTimeAreReportedAsUnknown() throws Exception {
+        Future<long[]> future = mock(Future.class);
+        when(future.get(anyLong(), any(TimeUnit.class))).thenThrow(new TimeoutException());
+        Map<Member, Future<long[]>> futures = new HashMap<Member, Future<long[]>>();
+        futures.put(mock(Member.class), completed(10L, 100L));
+        futures.put(mock(Member.class), future);
+        when(executor.submitToAllMembers(any(OwnedEntryStatsTask.class))).thenReturn(futures);
+        ClusterMapStatistics statistics = new ClusterMapStatistics(instance, "region", 60000L);
+
+        assertEquals(-1L, statistics.getOwnedEntryMemoryCost());
+        assertEquals(-1L, statistics.getOwnedEntryCount());
+        ArgumentCaptor<Long> timeout = ArgumentCaptor.forClass(Long.class);
+        verify(future).get(timeout.capture(), eq(TimeUnit.NANOSECONDS));
+        assertTrue(timeout.getValue() <= TimeUnit.MILLISECONDS.toNanos(ClusterMapStatistics.COLLECTION_TIMEOUT_MILLIS));
+        verify(future, never()).get();
+        verify(executor, times(1)).submitToAllMembers(any(OwnedEntryStatsTask.class));
+    }
+
+    @Test
+    public void testStatisticsDisabledOnAnyMemberAreReportedAsUnknown() throws Exception {
+        Map<Member, Future<long[]>> futures = new HashMap<Member, Future<long[]>>();
+        futures.put(mock(Member.class), completed(10L, 100L));
+        futures.put(mock(Member.class), completed(OwnedEntryStatsTask.UNKNOWN, OwnedEntryStatsTask.UNKNOWN));
+        when(executor.submitToAllMembers(any(OwnedEntryStatsTask.class))).thenReturn(futures);
+
+        ClusterMapStatistics statistics = new ClusterMapStatistics(instance, "region", 0L);
+        assertEquals(-1L, statistics.getOwnedEntryCount());
+    }
+
+    @Test
+    public void testStatisticsAreNotWaitedForWhileCollectedByAnotherThread() throws Exception {
+        final CountDownLatch collecting = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Future<long[]> future = mock(Future.class);
+        when(future.get(anyLong(), any(TimeUnit.class))).thenAnswer(new Answer<long[]>() {
+            @Override
+            public long[] answer(final InvocationOnMock invocation) throws Throwable {
+                collecting.countDown();
+                release.await();
+                return new long[]{10L, 100L};
+            }
+        });
+        when(executor.submitToAllMembers(any(OwnedEntryStatsTask.class)))
+                .thenReturn(Collections.<Member, Future<long[]>>singletonMap(mock(Member.class), future));
+        final ClusterMapStatistics statistics = new ClusterMapStatistics(instance, "region", 60000L);
+        Thread collector = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                statistics.getOwnedEntryCount();
+            }
+        });
+        collector.start();
+        assertTrue(collecting.await(10, TimeUnit.SECONDS));
+
+        assertEquals(-1L, statistics.getOwnedEntryCount());
+        release.countDown();
+        collector.join();
+        assertEquals(10L, statistics.getOwnedEntryCount());
+        verify(executor, times(1)).submitToAllMembers(any(OwnedEntryStatsTask.class));
+    }
+
+    @Test
+    public void testTaskReportsDisabledStatisticsAsUnknown() {
+        Config config = new Config();
+        config.getMapConfig("region").setStatisticsEnabled(false);
+        when(instance.getConfig()).thenReturn(config);
+        OwnedEntryStatsTask task = new OwnedEntryStatsTask("region");
+        task.setHazelcastInstance(instance);
+
+        long[] stats = task.call();
+        assertEquals(OwnedEntryStatsTask.UNKNOWN, stats[OwnedEntryStatsTask.ENTRY_COUNT]);
+        assertEquals(OwnedEntryStatsTask.UNKNOWN, stats[OwnedEntryStatsTask.MEMORY_COST]);
+        verify(instance, never()).getMap("region");
+    }
+
+    @Test
+    public void testTaskReadsLocalMapStats() {
+        when(instance.getConfig()).thenReturn(new Config());
+        IMap<Object, Object> map = mock(IMap.class);
+        LocalMapStats localMapStats = mock(LocalMapStats.class);
+        when(instance.getMap("region")).thenReturn(map);
+        when(map.getLocalMapStats()).thenReturn(localMapStats);
+        when(localMapStats.getOwnedEntryCount()).thenReturn(7L);
+        when(localMapStats.getOwnedEntryMemoryCost()).thenReturn(42L);
+        OwnedEntryStatsTask task = new OwnedEntryStatsTask("region");
+        task.setHazelcastInstance(instance);
+
+        long[] stats = task.call();
+        assertEquals(7L, stats[OwnedEntryStatsTask.ENTRY_COUNT]);
+        assertEquals(42L, stats[OwnedEntryStatsTask.MEMORY_COST]);
+    }
+
+    private static Future<long[]> completed(final long entryCount, final long memoryCost) throws Exception {
+        Future<long[]> future = mock(Future.class);
+        when(future.get(anyLong(), any(TimeUnit.class))).thenReturn(new long[]{entryCount, memoryCost});
+        return future;
+    }
+}
@@ -0,0 +1,61 @@
+package com.hazelcast.hibernate.distributed;
+
+import com.hazelcast.internal.serialization.InternalSerializationService;
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+import com.hazelcast.nio.serialization.Data;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CompressedValueTest {
+
+    private final InternalSerializationService serializationService = new DefaultSerializationServiceBuilder().build();
+    private final CompressionStatistics statistics = new CompressionStatistics();
+
+    @Test
+    public void testValuesAboveThresholdAreCompressed() {
+        String value = repeat("compressible ", 200);
+        Data data = serializationService.toData(new CompressedValue(value, 100, statistics));
+
+        CompressedValue copy = serializationService.toObject(data);
+
+        assertTrue(data.totalSize() < serializationService.toData(value).totalSize() / 4);
+        assertEquals(value, copy.getValue(statistics));
+        assertEquals(1, statistics.getCompressions());
+        assertTrue(statistics.getCompressionRatio() < 0.25);
+        assertEquals(1, statistics.getDecompressions());
+    }
+
+    @Test
+    public void testValuesBelowThresholdAreWrittenRaw() {
+        Data data = serializationService.toData(new CompressedValue("small", 100, statistics));
+
+        CompressedValue copy = serializationService.toObject(data);
+
+        assertEquals("small", copy.getValue(statistics));
+        assertEquals(0, statistics.getCompressions());
+        assertEquals(0, statistics.getDecompressions());
+        assertEquals(1.0, statistics.getCompressionRatio(), 0.0);
+    }
+
+    @Test
+    public void testValuesPassedOnKeepTheirPayload() {
+        Data data = serializationService.toData(new CompressedValue(repeat("payload ", 100), 10, statistics));
+
+        CompressedValue copy = serializationService.toObject(data);
+
+        assertTrue(Arrays.equals(data.toByteArray(), serializationService.toData(copy).toByteArray()));
+        assertEquals(1, statistics.getCompressions());
+        assertEquals(0, statistics.getDecompressions());
+    }
+
+    private static String repeat(final String text, final int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,298 @@
+package com.hazelcast.hibernate.distributed;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Cluster;
+import com.hazelcast.core.Endpoint;
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IExecutorService;
+import com.hazelcast.core.IMap;
+import com.hazelcast.core.Member;
+import com.hazelcast.hibernate.CacheEnvironment;
+import com.hazelcast.hibernate.serialization.Expirable;
+import com.hazelcast.hibernate.serialization.ExpiryMarker;
+import com.hazelcast.hibernate.serialization.Value;
+import com.hazelcast.map.listener.MapListener;
+import org.hibernate.cache.spi.CacheDataDescription;
+import org.hibernate.internal.util.compare.ComparableComparator;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+public class IMapRegionCacheTest {
+
+    private final HazelcastInstance instance = mock(HazelcastInstance.class);
+    private final IMap<Object, Expirable> map = mock(IMap.class);
+    private final CacheDataDescription metadata = mock(CacheDataDescription.class);
+
+    @Before
+    public void setUp() {
+        when(instance.getMap("region")).thenReturn((IMap) map);
+        when(instance.getConfig()).thenReturn(new Config());
+        when(metadata.isVersioned()).thenReturn(true);
+    }
+
+    @Test
+    public void testPutWithBuiltInComparatorUsesEntryProcessor() {
+        when(metadata.getVersionComparator()).thenReturn(ComparableComparator.INSTANCE);
+        when(map.executeOnKey(eq("key"), any(PutFromLoadEntryProcessor.class))).thenReturn(true);
+        IMapRegionCache cache = new IMapRegionCache("region", instance, new Properties(), metadata);
+
+        assertTrue(cache.put("key", "value", 100L, 1));
+        verify(map, never()).get("key");
+    }
+
+    @Test
+    public void testPutIsRetriedOnConflict() {
+        IMapRegionCache cache = newCacheWithCustomComparator();
+        Value previous = new Value(1, 50L, "previous");
+        when(map.get("key")).thenReturn(previous);
+        when(map.replace(eq("key"), eq(previous), any(Value.class))).thenReturn(false).thenReturn(true);
+
+        assertTrue(cache.put("key", "value", 100L, 2));
+
+        ContentionStatistics statistics = cache.getContentionStatistics();
+        assertEquals(1, statistics.getConflicts());
+        assertEquals(1, statistics.getRetries());
+        assertEquals(0, statistics.getAbandonedPuts());
+    }
+
+    @Test
+    public void testPutIsAbandonedWhenEntryIsLockedAfterConflict() {
+        IMapRegionCache cache = newCacheWithCustomComparator();
+        Value previous = new Value(1, 50L, "previous");
+        when(map.get("key")).thenReturn(previous).thenReturn(new ExpiryMarker(1, 1000L, "marker"));
+        when(map.replace(eq("key"), eq(previous), any(Value.class))).thenReturn(false);
+
+        assertFalse(cache.put("key", "value", 100L, 2));
+
+        verify(map, times(1)).replace(eq("key"), any(Expirable.class), any(Value.class));
+        assertEquals(1, cache.getContentionStatistics().getAbandonedPuts());
+    }
+
+    @Test
+    public void testAsyncPutsBeyondWindowAreDropped() {
+        when(metadata.getVersionComparator()).thenReturn(ComparableComparator.INSTANCE);
+        Properties props = new Properties();
+        props.setProperty(CacheEnvironment.ASYNC_PUT_FROM_LOAD_WINDOW, "2");
+        IMapRegionCache cache = new IMapRegionCache("region", instance, props, metadata);
+
+        assertTrue(cache.put("key1", "value", 100L, 1));
+        assertTrue(cache.put("key2", "value", 100L, 1));
+        assertFalse(cache.put("key3", "value", 100L, 1));
+        assertEquals(1, cache.getContentionStatistics().getDroppedPuts());
+
+        ArgumentCaptor<ExecutionCallback> captor = ArgumentCaptor.forClass(ExecutionCallback.class);
+        verify(map, times(2)).submitToKey(any(), any(PutFromLoadEntryProcessor.class), captor.capture());
+        verify(map, never()).executeOnKey(any(), any(PutFromLoadEntryProcessor.class));
+
+        captor.getAllValues().get(0).onResponse(true);
+        captor.getAllValues().get(1).onFailure(new RuntimeException("expected"));
+        assertTrue(cache.put("key3", "value", 100L, 1));
+        assertTrue(cache.put("key4", "value", 100L, 1));
+        assertFalse(cache.put("key5", "value", 100L, 1));
+        assertEquals(2, cache.getContentionStatistics().getDroppedPuts());
+    }
+
+    @Test
+    public void testTimestampsAreNeverPutAsync() {
+        Properties props = new Properties();
+        props.setProperty(CacheEnvironment.ASYNC_PUT_FROM_LOAD_WINDOW, "2");
+        when(map.executeOnKey(eq("key"), any(PutFromLoadEntryProcessor.class))).thenReturn(true);
+        IMapRegionCache cache = new IMapRegionCache("region", instance, props, null);
+
+        assertTrue(cache.put("key", 100L, 100L, null));
+        verify(map, never()).submitToKey(any(), any(PutFromLoadEntryProcessor.class), any(ExecutionCallback.class));
+    }
+
+    @Test
+    public void testLockedEntryIsNotReadFromNearCache() {
+        when(metadata.getVersionComparator()).thenReturn(ComparableComparator.INSTANCE);
+        Properties props = new Properties();
+        props.setProperty(CacheEnvironment.NEAR_CACHE_MAX_SIZE, "100");
+        IMapRegionCache cache = new IMapRegionCache("region", instance, props, metadata);
+        cache.enableNearCache();
+        ExpiryMarker marker = new ExpiryMarker(1, 1000L, "marker");
+        when(map.get("key")).thenReturn(new Value(1, 50L, "value")).thenReturn(marker);
+        when(map.executeOnKey(eq("key"), any(LockEntryProcessor.class))).thenReturn(marker);
+        when(instance.getCluster()).thenReturn(mock(Cluster.class));
+        when(instance.getLocalEndpoint()).thenReturn(mock(Endpoint.class));
+
+        assertEquals("value", cache.get("key", 100L));
+        assertEquals("value", cache.get("key", 100L));
+        verify(map, times(1)).get("key");
+
+        cache.tryLock("key", 1);
+        assertNull(cache.get("key", 100L));
+        assertNull(cache.get("key", 100L));
+        verify(map, times(3)).get("key");
+
+        NearCacheStatistics statistics = cache.getNearCacheStatistics();
+        assertEquals(1, statistics.getHits());
+        assertEquals(3, statistics.getMisses());
+        assertEquals(1, statistics.getInvalidations());
+    }
+
+    @Test
+    public void testNearCacheIsKeptOnlyWhileEnabled() {
+        Properties props = new Properties();
+        props.setProperty(CacheEnvironment.NEAR_CACHE_MAX_SIZE, "100");
+        IMapRegionCache cache = new IMapRegionCache("region", instance, props, metadata);
+        when(map.get("key")).thenReturn(new Value(1, 50L, "value"));
+        when(map.addEntryListener(any(MapListener.class), eq(false))).thenReturn("listener");
+
+        cache.get("key", 100L);
+        cache.get("key", 100L);
+        verify(map, times(2)).get("key");
+        assertNull(cache.getNearCacheStatistics());
+
+        cache.enableNearCache();
+        cache.enableNearCache();
+        cache.get("key", 100L);
+        cache.get("key", 100L);
+        verify(map, times(3)).get("key");
+        verify(map, times(1)).addEntryListener(any(MapListener.class), eq(false));
+
+        cache.destroy();
+        verify(map).removeEntryListener("listener");
+        assertNull(cache.getNearCacheStatistics());
+        cache.get("key", 100L);
+        verify(map, times(4)).get("key");
+    }
+
+    @Test
+    public void testGetAllReadsAllKeysAtOnce() {
+        Map<Object, Expirable> entries = new HashMap<Object, Expirable>();
+        entries.put("key1", new Value(1, 50L, "value1"));
+        entries.put("key2", new ExpiryMarker(1, 1000L, "marker"));
+        when(map.getAll(anySet())).thenReturn(entries);
+        IMapRegionCache cache = new IMapRegionCache("region", instance, new Properties(), metadata);
+
+        Map<Object, Object> values = cache.getAll(Arrays.asList("key1", "key2", "key3"), 100L);
+
+        assertEquals(Collections.singletonMap("key1", "value1"), values);
+        verify(map).getAll(new HashSet<Object>(Arrays.asList("key1", "key2", "key3")));
+        verify(map, never()).get(any());
+    }
+
+    @Test
+    public void testGetAllReadsOnlyKeysWithoutNearCopies() {
+        when(metadata.getVersionComparator()).thenReturn(ComparableComparator.INSTANCE);
+        Properties props = new Properties();
+        props.setProperty(CacheEnvironment.NEAR_CACHE_MAX_SIZE, "100");
+        IMapRegionCache cache = new IMapRegionCache("region", instance, props, metadata);
+        cache.enableNearCache();
+        when(map.getAll(anySet())).thenReturn(Collections.<Object, Expirable>singletonMap("key1",
+                new Value(1, 50L, "value1")));
+        cache.getAll(Collections.singleton("key1"), 100L);
+        when(map.getAll(anySet())).thenReturn(Collections.<Object, Expirable>singletonMap("key2",
+                new Value(1, 50L, "value2")));
+
+        Map<Object, Object> values = cache.getAll(Arrays.asList("key1", "key2"), 100L);
+
+        assertEquals(2, values.size());
+        assertEquals("value1", values.get("key1"));
+        verify(map).getAll(Collections.<Object>singleton("key2"));
+        assertEquals(1, cache.getNearCacheStatistics().getHits());
+    }
+
+    @Test
+    public void testValuesAreCompressedAboveRegionThreshold() {
+        Properties props = new Properties();
+        props.setProperty(CacheEnvironment.COMPRESSION_THRESHOLD, "1000000");
+        props.setProperty(CacheEnvironment.COMPRESSION_THRESHOLD + ".region", "100");
+        IMapRegionCache cache = new IMapRegionCache("region", instance, props, metadata);
+        when(instance.getCluster()).thenReturn(mock(Cluster.class));
+
+        cache.insert("key", "value", 1);
+
+        ArgumentCaptor<Value> captor = ArgumentCaptor.forClass(Value.class);
+        verify(map).putIfAbsent(eq("key"), captor.capture());
+        Object stored = captor.getValue().getValue();
+        assertTrue(stored instanceof CompressedValue);
+        when(map.get("key")).thenReturn(new Value(1, 50L, stored));
+        assertEquals("value", cache.get("key", 100L));
+    }
+
+    @Test
+    public void testTimestampsAreNeverCompressed() {
+        Properties props = new Properties();
+        props.setProperty(CacheEnvironment.COMPRESSION_THRESHOLD, "100");
+        IMapRegionCache cache = new IMapRegionCache("region", instance, props, null);
+        when(instance.getCluster()).thenReturn(mock(Cluster.class));
+
+        cache.insert("key", 100L, null);
+
+        ArgumentCaptor<Value> captor = ArgumentCaptor.forClass(Value.class);
+        verify(map).putIfAbsent(eq("key"), captor.capture());
+        assertEquals(100L, captor.getValue().getValue());
+    }
+
+    @Test
+    public void testSizeIsExactByDefault() {
+        when(map.size()).thenReturn(5);
+        IMapRegionCache cache = new IMapRegionCache("region", instance, new Properties(), metadata);
+
+        assertEquals(5, cache.size());
+        verify(instance, never()).getExecutorService(anyString());
+    }
+
+    @Test
+    public void testSizeIsTakenFromCollectedStatisticsWhenTheyMayBeStale() throws Exception {
+        Future<long[]> future = mock(Future.class);
+        when(future.get(anyLong(), any(TimeUnit.class))).thenReturn(new long[]{7L, 700L});
+        IExecutorService executor = mock(IExecutorService.class);
+        when(executor.submitToAllMembers(any(OwnedEntryStatsTask.class)))
+                .thenReturn(Collections.singletonMap(mock(Member.class), future));
+        when(instance.getExecutorService(ClusterMapStatistics.EXECUTOR_NAME)).thenReturn(executor);
+        Properties props = new Properties();
+        props.setProperty(CacheEnvironment.STATISTICS_REFRESH_INTERVAL, "60000");
+        IMapRegionCache cache = new IMapRegionCache("region", instance, props, metadata);
+
+        assertEquals(7, cache.size());
+        assertEquals(700, cache.getSizeInMemory());
+        verify(map, never()).size();
+        verify(executor, times(1)).submitToAllMembers(any(OwnedEntryStatsTask.class));
+    }
+
+    @Test
+    public void testSizeIsCountedWhenStatisticsAreDisabled() throws Exception {
+        Future<long[]> future = mock(Future.class);
+        when(future.get(anyLong(), any(TimeUnit.class)))
+                .thenReturn(new long[]{OwnedEntryStatsTask.UNKNOWN, OwnedEntryStatsTask.UNKNOWN});
+        IExecutorService executor = mock(IExecutorService.class);
+        when(executor.submitToAllMembers(any(OwnedEntryStatsTask.class)))
+                .thenReturn(Collections.singletonMap(mock(Member.class), future));
+        when(instance.getExecutorService(ClusterMapStatistics.EXECUTOR_NAME)).thenReturn(executor);
+        when(map.size()).thenReturn(5);
+        Properties props = new Properties();
+        props.setProperty(CacheEnvironment.STATISTICS_REFRESH_INTERVAL, "60000");
+        IMapRegionCache cache = new IMapRegionCache("region", instance, props, metadata);
+
+        assertEquals(5, cache.size());
+    }
+
+    private IMapRegionCache newCacheWithCustomComparator() {
+        when(metadata.getVersionComparator()).thenReturn(new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer o1, final Integer o2) {
+                return o1.compareTo(o2);
+            }
+        });
+        return new IMapRegionCache("region", instance, new Properties(), metadata);
+    }
+}
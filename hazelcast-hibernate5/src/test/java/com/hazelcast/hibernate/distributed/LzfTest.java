@@ -0,0 +1,59 @@
+package com.hazelcast.hibernate.distributed;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LzfTest {
+
+    @Test
+    public void testRepetitiveInputShrinks() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append("order-line-").append(i % 50).append(';');
+        }
+        byte[] input = text.toString().getBytes("UTF-8");
+
+        byte[] compressed = Lzf.compress(input);
+
+        assertTrue(compressed.length < input.length / 4);
+        assertArrayEquals(input, Lzf.decompress(compressed, input.length));
+    }
+
+    @Test
+    public void testRandomInputRoundTrips() throws IOException {
+        Random random = new Random(42);
+        for (int length : new int[]{0, 1, 2, 3, 31, 32, 33, 1000, 100000}) {
+            byte[] input = new byte[length];
+            random.nextBytes(input);
+
+            byte[] compressed = Lzf.compress(input);
+
+            assertTrue(compressed.length <= length + length / 32 + 1);
+            assertArrayEquals(input, Lzf.decompress(compressed, length));
+        }
+    }
+
+    @Test
+    public void testLongAndOverlappingMatchesRoundTrip() throws IOException {
+        byte[] input = new byte[20000];
+        Arrays.fill(input, 0, 10000, (byte) 7);
+        for (int i = 10000; i < input.length; i++) {
+            input[i] = (byte) (i % 3);
+        }
+
+        assertArrayEquals(input, Lzf.decompress(Lzf.compress(input), input.length));
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedInputIsRejected() throws IOException {
+        byte[] input = "abcabcabcabcabcabcabc".getBytes("UTF-8");
+        byte[] compressed = Lzf.compress(input);
+
+        Lzf.decompress(Arrays.copyOf(compressed, compressed.length - 1), input.length);
+    }
+}
@@ -0,0 +1,86 @@
+package com.hazelcast.hibernate.distributed;
+
+import com.hazelcast.core.EntryEvent;
+import com.hazelcast.hibernate.serialization.ExpiryMarker;
+import com.hazelcast.hibernate.serialization.Value;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+public class NearCacheTest {
+
+    private final NearCache nearCache = new NearCache(10, 60000L);
+
+    @Test
+    public void testValuesAreKept() {
+        Value value = new Value(null, 100L, "value");
+        assertNull(nearCache.get(1));
+
+        nearCache.put(1, value, nearCache.beforeRead());
+
+        assertSame(value, nearCache.get(1));
+        assertEquals(1, nearCache.getStatistics().getHits());
+        assertEquals(1, nearCache.getStatistics().getMisses());
+    }
+
+    @Test
+    public void testMarkersAreNotKept() {
+        nearCache.put(1, new ExpiryMarker(null, 100L, "marker"), nearCache.beforeRead());
+        nearCache.put(2, null, nearCache.beforeRead());
+
+        assertEquals(0, nearCache.size());
+    }
+
+    @Test
+    public void testValueReadBeforeInvalidationIsNotKept() {
+        long sequence = nearCache.beforeRead();
+        nearCache.invalidate(2);
+
+        nearCache.put(1, new Value(null, 100L, "stale"), sequence);
+
+        assertNull(nearCache.get(1));
+    }
+
+    @Test
+    public void testEventsInvalidateCopies() {
+        nearCache.put(1, new Value(null, 100L, "value"), nearCache.beforeRead());
+        EntryEvent<Object, Object> event = mock(EntryEvent.class);
+        when(event.getKey()).thenReturn(1);
+
+        nearCache.entryUpdated(event);
+
+        assertNull(nearCache.get(1));
+        assertEquals(1, nearCache.getStatistics().getInvalidations());
+    }
+
+    @Test
+    public void testClearInvalidatesAllCopies() {
+        nearCache.put(1, new Value(null, 100L, "value"), nearCache.beforeRead());
+        nearCache.put(2, new Value(null, 100L, "value"), nearCache.beforeRead());
+
+        nearCache.mapCleared(null);
+
+        assertEquals(0, nearCache.size());
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        for (int i = 0; i < 20; i++) {
+            nearCache.put(i, new Value(null, 100L, "value"), nearCache.beforeRead());
+        }
+
+        assertEquals(10, nearCache.size());
+        assertEquals(10, nearCache.getStatistics().getEvictions());
+    }
+
+    @Test
+    public void testExpiredCopiesAreNotRead() {
+        NearCache expiring = new NearCache(10, 0L);
+        expiring.put(1, new Value(null, 100L, "value"), expiring.beforeRead());
+
+        assertNull(expiring.get(1));
+        assertEquals(0, expiring.size());
+    }
+}
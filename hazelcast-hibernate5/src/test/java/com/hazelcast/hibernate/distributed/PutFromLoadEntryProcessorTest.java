@@ -0,0 +1,95 @@
+package com.hazelcast.hibernate.distributed;
+
+import com.hazelcast.hibernate.serialization.Expirable;
+import com.hazelcast.hibernate.serialization.ExpiryMarker;
+import com.hazelcast.hibernate.serialization.Value;
+import org.hibernate.internal.util.compare.ComparableComparator;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.sql.Timestamp;
+import java.util.Comparator;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class PutFromLoadEntryProcessorTest {
+
+    @Test
+    public void testProcessWithNullEntry() throws Exception {
+        Map.Entry<Object, Expirable> entry = mockEntry(null);
+        PutFromLoadEntryProcessor processor = new PutFromLoadEntryProcessor("new-value", 1, 150L, VersionComparators.INTEGER);
+        ArgumentCaptor<Expirable> captor = ArgumentCaptor.forClass(Expirable.class);
+        assertTrue(processor.process(entry));
+        verify(entry).setValue(captor.capture());
+        assertEquals("new-value", captor.getValue().getValue());
+        assertEquals(1, captor.getValue().getVersion());
+    }
+
+    @Test
+    public void testProcessWithOlderVersion() throws Exception {
+        Map.Entry<Object, Expirable> entry = mockEntry(new Value(1L, 100L, "old-value"));
+        PutFromLoadEntryProcessor processor = new PutFromLoadEntryProcessor("new-value", 2L, 150L, VersionComparators.LONG);
+        assertTrue(processor.process(entry));
+        verify(entry).setValue(any(Expirable.class));
+    }
+
+    @Test
+    public void testProcessWithNewerVersion() throws Exception {
+        Map.Entry<Object, Expirable> entry = mockEntry(new Value((short) 3, 100L, "newer-value"));
+        PutFromLoadEntryProcessor processor = new PutFromLoadEntryProcessor("new-value", (short) 2, 150L, VersionComparators.SHORT);
+        assertFalse(processor.process(entry));
+        verify(entry, never()).setValue(any(Expirable.class));
+    }
+
+    @Test
+    public void testProcessWithLockedEntry() throws Exception {
+        Map.Entry<Object, Expirable> entry = mockEntry(new ExpiryMarker(null, 200L, "the-marker-id"));
+        PutFromLoadEntryProcessor processor = new PutFromLoadEntryProcessor("new-value", null, 150L, VersionComparators.NONE);
+        assertFalse(processor.process(entry));
+        verify(entry, never()).setValue(any(Expirable.class));
+    }
+
+    @Test
+    public void testProcessWithUnregisteredComparator() throws Exception {
+        Map.Entry<Object, Expirable> entry = mockEntry(new Value(1, 100L, "old-value"));
+        PutFromLoadEntryProcessor processor = new PutFromLoadEntryProcessor("new-value", 2, 150L, 1000);
+        assertFalse(processor.process(entry));
+        verify(entry, never()).setValue(any(Expirable.class));
+    }
+
+    @Test
+    public void testBuiltInTypeIds() {
+        Comparator comparator = ComparableComparator.INSTANCE;
+        assertEquals(VersionComparators.NONE, VersionComparators.getTypeId(null, null));
+        assertEquals(VersionComparators.INTEGER, VersionComparators.getTypeId(comparator, 1));
+        assertEquals(VersionComparators.LONG, VersionComparators.getTypeId(comparator, 1L));
+        assertEquals(VersionComparators.SHORT, VersionComparators.getTypeId(comparator, (short) 1));
+        assertEquals(VersionComparators.TIMESTAMP, VersionComparators.getTypeId(comparator, new Timestamp(1L)));
+        assertEquals(VersionComparators.UNKNOWN, VersionComparators.getTypeId(comparator, "1"));
+        assertEquals(VersionComparators.UNKNOWN, VersionComparators.getTypeId(mock(Comparator.class), 1));
+    }
+
+    @Test
+    public void testRegisteredComparator() {
+        Comparator comparator = mock(Comparator.class);
+        VersionComparators.register(100, comparator);
+
+        assertEquals(100, VersionComparators.getTypeId(comparator, "1"));
+        assertSame(comparator, VersionComparators.get(100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuiltInTypeIdCannotBeRegistered() {
+        VersionComparators.register(VersionComparators.LONG, mock(Comparator.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map.Entry<Object, Expirable> mockEntry(Expirable value) {
+        Map.Entry entry = mock(Map.Entry.class);
+        when(entry.getValue()).thenReturn(value);
+        return entry;
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.hazelcast.hibernate.local;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class CleanupSchedulerTest {
+
+    private static final long NEVER_DUE = Long.MAX_VALUE / 2;
+
+    private final CleanupScheduler scheduler = new CleanupScheduler(0L);
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testCachesUnderPressureAreCleanedFirst() {
+        LocalRegionCache relaxed = mockCache(0.5F, 0);
+        LocalRegionCache pressured = mockCache(2F, 0);
+        scheduler.register(relaxed, 0L);
+        scheduler.register(pressured, 0L);
+
+        // Without a budget only the first cache is cleaned up and only the first cache expires
+        scheduler.runPass();
+
+        verify(pressured).cleanup(CleanupScheduler.STEP_SIZE);
+        verify(relaxed, never()).cleanup(anyInt());
+        verify(relaxed).expire(CleanupScheduler.STEP_SIZE);
+        verify(pressured, never()).expire(anyInt());
+    }
+
+    @Test
+    public void testExpiryCarriesOnWithNextCacheInLaterPasses() {
+        LocalRegionCache first = mockCache(0.5F, 0);
+        LocalRegionCache second = mockCache(0.5F, 0);
+        scheduler.register(first, NEVER_DUE);
+        scheduler.register(second, NEVER_DUE);
+
+        scheduler.runPass();
+        verify(first).expire(anyInt());
+        verify(second, never()).expire(anyInt());
+
+        scheduler.runPass();
+        verify(first).expire(anyInt());
+        verify(second).expire(anyInt());
+
+        scheduler.runPass();
+        verify(first, times(2)).expire(anyInt());
+        verify(second).expire(anyInt());
+    }
+
+    @Test
+    public void testCachesExpireInStepsUntilCaughtUp() {
+        CleanupScheduler unbounded = new CleanupScheduler(TimeUnit.MINUTES.toMillis(1));
+        try {
+            LocalRegionCache caughtUp = mockCache(0.5F, 0);
+            LocalRegionCache behind = mockCache(0.5F, 0);
+            when(caughtUp.expire(anyInt())).thenReturn(true);
+            when(behind.expire(anyInt())).thenReturn(false, false, true);
+            unbounded.register(caughtUp, NEVER_DUE);
+            unbounded.register(behind, NEVER_DUE);
+
+            unbounded.runPass();
+
+            verify(caughtUp).expire(CleanupScheduler.STEP_SIZE);
+            verify(behind, times(3)).expire(CleanupScheduler.STEP_SIZE);
+        } finally {
+            unbounded.shutdown();
+        }
+    }
+
+    @Test
+    public void testCachesAreCleanedWhenDueOrOverMaxSize() {
+        LocalRegionCache notDue = mockCache(0.5F, 0);
+        LocalRegionCache overMaxSize = mockCache(1.5F, 0);
+        scheduler.register(notDue, NEVER_DUE);
+        scheduler.register(overMaxSize, NEVER_DUE);
+
+        scheduler.runPass();
+
+        verify(notDue, never()).cleanup(anyInt());
+        verify(overMaxSize).cleanup(CleanupScheduler.STEP_SIZE);
+    }
+
+    @Test
+    public void testCleanupStatisticsAreRecorded() {
+        LocalRegionCache cache = mockCache(0F, 5);
+        scheduler.register(cache, 0L);
+
+        scheduler.runPass();
+        scheduler.runPass();
+
+        CleanupStatistics statistics = cache.getCleanupStatistics();
+        assertEquals(2, statistics.getCleanupCount());
+        assertEquals(5, statistics.getLastRemovedEntries());
+        assertTrue(statistics.getMaxDurationNanos() >= statistics.getAverageDurationNanos());
+    }
+
+    @Test
+    public void testDeregisteredCachesAreNotCleaned() {
+        LocalRegionCache cache = mockCache(2F, 0);
+        scheduler.register(cache, 0L);
+        scheduler.deregister(cache);
+
+        scheduler.runPass();
+
+        verify(cache, never()).expire(anyInt());
+        verify(cache, never()).cleanup(anyInt());
+    }
+
+    @Test
+    public void testSharedSchedulerIsShutDownWithLastRelease() {
+        CleanupScheduler first = CleanupScheduler.acquire();
+        assertSame(first, CleanupScheduler.acquire());
+        CleanupScheduler.release();
+        CleanupScheduler.release();
+
+        CleanupScheduler second = CleanupScheduler.acquire();
+        try {
+            assertNotSame(first, second);
+        } finally {
+            CleanupScheduler.release();
+        }
+    }
+
+    private static LocalRegionCache mockCache(final float sizePressure, final int removed) {
+        LocalRegionCache cache = mock(LocalRegionCache.class);
+        when(cache.getSizePressure()).thenReturn(sizePressure);
+        when(cache.getEntryCount()).thenReturn(100);
+        when(cache.cleanup(anyInt())).thenReturn(removed);
+        when(cache.getCleanupStatistics()).thenReturn(new CleanupStatistics());
+        return cache;
+    }
+}
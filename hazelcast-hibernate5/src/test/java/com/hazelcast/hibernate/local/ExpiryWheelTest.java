@@ -0,0 +1,140 @@
+package com.hazelcast.hibernate.local;
+
+import com.hazelcast.hibernate.serialization.Expirable;
+import com.hazelcast.hibernate.serialization.ExpiryMarker;
+import com.hazelcast.hibernate.serialization.Value;
+import org.junit.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.junit.Assert.*;
+
+public class ExpiryWheelTest {
+
+    private final ConcurrentMap<Object, Expirable> cache = new ConcurrentHashMap<Object, Expirable>();
+
+    @Test
+    public void testEntriesAreRemovedAfterTimeToLive() {
+        ExpiryWheel wheel = new ExpiryWheel(cache, 10000L, 1000L);
+        wheel.advance(0L);
+        put(wheel, 1, 0L);
+        put(wheel, 2, 5000L);
+
+        assertEquals(0, wheel.advance(10000L));
+        assertEquals(1, wheel.advance(11000L));
+        assertFalse(cache.containsKey(1));
+        assertTrue(cache.containsKey(2));
+
+        assertEquals(1, wheel.advance(16000L));
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testRewrittenEntriesAreKept() {
+        ExpiryWheel wheel = new ExpiryWheel(cache, 10000L, 1000L);
+        wheel.advance(0L);
+        put(wheel, 1, 0L);
+        put(wheel, 1, 8000L);
+        put(wheel, 2, 0L);
+        cache.put(2, new ExpiryMarker(null, 0L, "marker"));
+
+        assertEquals(0, wheel.advance(11000L));
+        assertTrue(cache.containsKey(1));
+        assertTrue(cache.containsKey(2));
+
+        assertEquals(1, wheel.advance(19000L));
+        assertFalse(cache.containsKey(1));
+    }
+
+    @Test
+    public void testKeysAreScheduledOnce() {
+        ExpiryWheel wheel = new ExpiryWheel(cache, 10000L, 1000L);
+        wheel.advance(0L);
+        for (long timestamp = 0L; timestamp < 10000L; timestamp += 100L) {
+            put(wheel, 1, timestamp);
+        }
+        assertEquals(1, wheel.size());
+
+        assertEquals(0, wheel.advance(11000L));
+        assertEquals(1, wheel.size());
+        assertEquals(1, wheel.advance(20000L));
+        assertFalse(cache.containsKey(1));
+        assertEquals(0, wheel.size());
+
+        put(wheel, 1, 20000L);
+        assertEquals(1, wheel.size());
+        assertEquals(1, wheel.advance(31000L));
+    }
+
+    @Test
+    public void testDeadlinesOnHigherLevelsAreCascaded() {
+        long timeToLive = ExpiryWheel.SLOTS * ExpiryWheel.SLOTS * 3L;
+        ExpiryWheel wheel = new ExpiryWheel(cache, timeToLive, 1L);
+        wheel.advance(100L);
+        for (int i = 0; i < 100; i++) {
+            put(wheel, i, 100L + i * 7);
+        }
+
+        for (long now = 101L; now <= 100L + timeToLive; now += 50) {
+            assertEquals(0, wheel.advance(now));
+        }
+        int removed = 0;
+        for (int i = 0; i < 100; i++) {
+            long deadline = 100L + i * 7 + timeToLive;
+            removed += wheel.advance(deadline + 1);
+            assertFalse(cache.containsKey(i));
+            if (i < 99) {
+                assertTrue(cache.containsKey(i + 1));
+            }
+        }
+        assertEquals(100, removed);
+    }
+
+    @Test
+    public void testDeadlinesBeyondWheelRangeAreRefiled() {
+        long range = 1L << (6 * ExpiryWheel.LEVELS);
+        ExpiryWheel wheel = new ExpiryWheel(cache, range * 2, 1L);
+        wheel.advance(0L);
+        put(wheel, 1, 0L);
+
+        assertEquals(0, wheel.advance(range * 2));
+        assertEquals(1, wheel.advance(range * 2 + 1));
+    }
+
+    @Test
+    public void testEntriesScheduledLateAreRemovedOnNextTick() {
+        ExpiryWheel wheel = new ExpiryWheel(cache, 1000L, 1000L);
+        wheel.advance(10000L);
+        put(wheel, 1, 0L);
+
+        assertEquals(1, wheel.advance(11000L));
+    }
+
+    @Test
+    public void testLimitedAdvanceCarriesOnWhereItStopped() {
+        ExpiryWheel wheel = new ExpiryWheel(cache, 10000L, 1000L);
+        wheel.advance(0L);
+        for (int i = 0; i < 100; i++) {
+            put(wheel, i, 0L);
+        }
+
+        // Handing over the scheduled keys takes ten calls, expiring them another ten
+        int removed = 0;
+        for (int i = 0; i < 20; i++) {
+            removed += wheel.advance(11000L, 10);
+            assertTrue(wheel.isBehind());
+        }
+        assertEquals(100, removed);
+        assertTrue(cache.isEmpty());
+
+        assertEquals(0, wheel.advance(11000L, 10));
+        assertFalse(wheel.isBehind());
+    }
+
+    private void put(final ExpiryWheel wheel, final Object key, final long timestamp) {
+        Value value = new Value(null, timestamp, "value");
+        cache.put(key, value);
+        wheel.schedule(key, value);
+    }
+}
@@ -0,0 +1,58 @@
+package com.hazelcast.hibernate.local;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class FrequencySketchTest {
+
+    @Test
+    public void testFrequencyIsEstimatedPerKey() {
+        FrequencySketch sketch = new FrequencySketch(100);
+        for (int i = 0; i < 5; i++) {
+            sketch.increment("hot");
+        }
+        sketch.increment("cold");
+
+        assertEquals(5, sketch.frequency("hot"));
+        assertEquals(1, sketch.frequency("cold"));
+        assertEquals(0, sketch.frequency("unknown"));
+    }
+
+    @Test
+    public void testConcurrentIncrementsDoNotPassMaximum() throws InterruptedException {
+        // Large enough that the counters are not halved while incremented
+        final FrequencySketch sketch = new FrequencySketch(1 << 16);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < 20000; j++) {
+                        sketch.increment("hot");
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Four counters of 15 each; a counter carried past 15 would have raised a neighbour on top
+        assertEquals(15, sketch.frequency("hot"));
+        assertEquals(4 * 15, sketch.sumOfCounters());
+    }
+}
@@ -0,0 +1,52 @@
+package com.hazelcast.hibernate.local;
+
+import com.hazelcast.core.Message;
+import com.hazelcast.core.MessageListener;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+public class GapDetectingMessageListenerTest {
+
+    private final MessageListener<Object> delegate = mock(MessageListener.class);
+    private final Runnable clearRegion = mock(Runnable.class);
+    private final GapDetectingMessageListener listener = new GapDetectingMessageListener("region", delegate, clearRegion);
+
+    @Test
+    public void testConsecutiveSequencesDoNotClearRegion() {
+        listener.storeSequence(5);
+        listener.storeSequence(6);
+        listener.storeSequence(7);
+
+        verifyZeroInteractions(clearRegion);
+    }
+
+    @Test
+    public void testSkippedSequencesClearRegion() {
+        listener.storeSequence(5);
+        listener.storeSequence(9);
+
+        verify(clearRegion).run();
+
+        listener.storeSequence(10);
+        verifyNoMoreInteractions(clearRegion);
+    }
+
+    @Test
+    public void testMessagesAreDelegated() {
+        Message<Object> message = new Message<Object>("region", new Invalidation(1, null), 0L, null);
+
+        listener.onMessage(message);
+
+        verify(delegate).onMessage(message);
+    }
+
+    @Test
+    public void testListenerToleratesLoss() {
+        assertEquals(-1, listener.retrieveInitialSequence());
+        assertTrue(listener.isLossTolerant());
+        assertFalse(listener.isTerminal(new RuntimeException()));
+    }
+}
@@ -0,0 +1,88 @@
+package com.hazelcast.hibernate.local;
+
+import com.hazelcast.core.ITopic;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+public class InvalidationBatcherTest {
+
+    private final ITopic<Object> topic = mock(ITopic.class);
+    private final InvalidationBatcher batcher = new InvalidationBatcher(topic);
+
+    @Test
+    public void testInvalidationsArePublishedOnFlush() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(batcher.add(new Invalidation(i, null)));
+        }
+        verifyZeroInteractions(topic);
+
+        batcher.flush();
+
+        assertEquals(10, publishedBatch().getInvalidations().size());
+        batcher.flush();
+        verifyNoMoreInteractions(topic);
+    }
+
+    @Test
+    public void testSingleInvalidationIsPublishedOnItsOwn() {
+        Invalidation invalidation = new Invalidation(1, null);
+        batcher.add(invalidation);
+
+        batcher.flush();
+
+        verify(topic).publish(invalidation);
+    }
+
+    @Test
+    public void testInvalidationsOfSameKeyAreCoalesced() {
+        batcher.add(new Invalidation(1, 1));
+        batcher.add(new Invalidation(1, 2));
+        batcher.add(new Invalidation(2, null));
+        batcher.add(new Invalidation(2, 3));
+
+        batcher.flush();
+
+        List<Object> invalidations = publishedBatch().getInvalidations();
+        assertEquals(2, invalidations.size());
+        assertEquals(2, ((Invalidation) invalidations.get(0)).getVersion());
+        assertNull(((Invalidation) invalidations.get(1)).getVersion());
+    }
+
+    @Test
+    public void testRegionInvalidationDiscardsEarlierInvalidations() {
+        batcher.add(new Invalidation(1, null));
+        Invalidation clear = new Invalidation(null, null);
+        batcher.add(clear);
+
+        batcher.flush();
+
+        verify(topic).publish(clear);
+        verifyNoMoreInteractions(topic);
+    }
+
+    @Test
+    public void testFullBatchIsPublishedImmediately() {
+        for (int i = 0; i < InvalidationBatcher.MAX_BATCH_SIZE; i++) {
+            batcher.add(new Invalidation(i, null));
+        }
+
+        assertEquals(InvalidationBatcher.MAX_BATCH_SIZE, publishedBatch().getInvalidations().size());
+    }
+
+    @Test
+    public void testOtherMessagesAreNotBatched() {
+        assertFalse(batcher.add(new Timestamp(1, 1L)));
+    }
+
+    private InvalidationBatch publishedBatch() {
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(topic).publish(captor.capture());
+        return (InvalidationBatch) captor.getValue();
+    }
+}
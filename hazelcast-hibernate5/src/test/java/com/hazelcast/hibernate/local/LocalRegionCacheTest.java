@@ -4,6 +4,7 @@ import com.hazelcast.config.Config;
 import com.hazelcast.config.MapConfig;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.ITopic;
+import com.hazelcast.core.Message;
 import com.hazelcast.core.MessageListener;
 import com.hazelcast.test.HazelcastSerialClassRunner;
 import com.hazelcast.test.annotation.QuickTest;
@@ -12,8 +13,10 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.junit.runner.RunWith;
 
+import java.util.Collections;
 import java.util.Comparator;
 
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 @RunWith(HazelcastSerialClassRunner.class)
@@ -93,7 +96,41 @@ public class LocalRegionCacheTest {
         verify(topic).addMessageListener(isNotNull(MessageListener.class));
     }
 
+    @Test
+    public void testOwnInvalidationsAreSkipped() {
+        LocalRegionCache cache = new LocalRegionCache(CACHE_NAME, null, null);
+        cache.insert("key", "value", null);
+
+        Object ownMessage = cache.createMessage("key", null, null);
+        cache.messageListener.onMessage(new Message<Object>(CACHE_NAME, ownMessage, 0L, null));
+        assertTrue(cache.contains("key"));
+
+        Object batch = new InvalidationBatch(Collections.singletonList(ownMessage));
+        cache.messageListener.onMessage(new Message<Object>(CACHE_NAME, batch, 0L, null));
+        assertTrue(cache.contains("key"));
+
+        Object otherMessage = new LocalRegionCache(CACHE_NAME, null, null).createMessage("key", null, null);
+        cache.messageListener.onMessage(new Message<Object>(CACHE_NAME, otherMessage, 0L, null));
+        assertFalse(cache.contains("key"));
+    }
+
+    @Test
+    public void testInvalidationsAreFlushedWhenTransactionCompletes() {
+        ITopic<Object> topic = mock(ITopic.class);
+        HazelcastInstance instance = mock(HazelcastInstance.class);
+        when(instance.getConfig()).thenReturn(mock(Config.class));
+        when(instance.getTopic(eq(CACHE_NAME))).thenReturn(topic);
+        LocalRegionCache cache = new LocalRegionCache(CACHE_NAME, instance, null, true);
+        cache.enableInvalidationBatching();
+
+        cache.remove("key1");
+        verify(topic, never()).publish(any());
+
+        cache.unlock("key2", null);
+        verify(topic).publish(isA(InvalidationBatch.class));
+    }
+
     public static void runCleanup(LocalRegionCache cache) {
-        cache.cleanup();
+        cache.cleanup(Integer.MAX_VALUE);
     }
 }
\ No newline at end of file
@@ -0,0 +1,201 @@
+package com.hazelcast.hibernate.local;
+
+import com.hazelcast.config.MaxSizeConfig;
+import com.hazelcast.hibernate.serialization.Expirable;
+import com.hazelcast.hibernate.serialization.ExpiryMarker;
+import com.hazelcast.hibernate.serialization.Value;
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+import com.hazelcast.spi.serialization.SerializationService;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class OffHeapRegionStoreTest {
+
+    private static final int SLAB_SIZE = 64 * 1024;
+
+    private final SerializationService serializationService = new DefaultSerializationServiceBuilder().build();
+
+    @Test
+    public void testEntriesAreDeserializedOnGet() {
+        OffHeapRegionStore store = newStore(SLAB_SIZE * 4);
+        store.put(1, new Value("v1", 100L, "value"));
+
+        Expirable value = store.get(1);
+        assertEquals("v1", value.getVersion());
+        assertEquals(100L, ((Value) value).getTimestamp());
+        assertEquals("value", value.getValue());
+        assertNull(store.get(2));
+        assertTrue(store.getSizeInMemory() > 0);
+    }
+
+    @Test
+    public void testConditionalOperationsCompareSerializedEntries() {
+        OffHeapRegionStore store = newStore(SLAB_SIZE * 4);
+        Value original = new Value(null, 100L, "original");
+        assertNull(store.putIfAbsent(1, original));
+        assertNotNull(store.putIfAbsent(1, new Value(null, 200L, "ignored")));
+
+        Expirable current = store.get(1);
+        assertFalse(store.replace(1, new Value(null, 100L, "other"), new Value(null, 300L, "updated")));
+        assertTrue(store.replace(1, current, new ExpiryMarker(null, 300L, "marker")));
+        assertTrue(store.get(1) instanceof ExpiryMarker);
+
+        assertFalse(store.remove(1, current));
+        assertTrue(store.remove(1, store.get(1)));
+        assertTrue(store.isEmpty());
+        assertEquals(0, store.getSizeInMemory());
+    }
+
+    @Test
+    public void testFreedChunksAreReused() {
+        SlabAllocator allocator = new SlabAllocator(SLAB_SIZE * 4, SLAB_SIZE, 16);
+        OffHeapRegionStore store = new OffHeapRegionStore(serializationService, allocator);
+        for (int i = 0; i < 100; i++) {
+            store.put(i, new Value(null, i, "value-" + i));
+        }
+        long reserved = allocator.getReservedMemory();
+
+        for (int round = 0; round < 10; round++) {
+            store.clear();
+            for (int i = 0; i < 100; i++) {
+                store.put(i, new Value(null, i, "value-" + i));
+            }
+        }
+
+        assertEquals(reserved, allocator.getReservedMemory());
+    }
+
+    @Test
+    public void testEntriesAreDroppedWhenMemoryIsExhausted() {
+        OffHeapRegionStore store = newStore(SLAB_SIZE);
+        for (int i = 0; i < 100; i++) {
+            store.put(i, new Value(null, i, new byte[1024]));
+        }
+
+        assertTrue(store.size() < 100);
+        assertTrue(store.getSizeInMemory() <= SLAB_SIZE);
+        store.put(1000, new Value(null, 0L, new byte[SLAB_SIZE]));
+        assertFalse(store.containsKey(1000));
+        assertEquals(1, store.getDroppedWrites());
+    }
+
+    @Test
+    public void testEntriesOfAnotherSizeAreStoredWhenSlabsAreTaken() {
+        OffHeapRegionStore store = newStore(SLAB_SIZE * 4);
+        for (int i = 0; i < 2000; i++) {
+            store.put(i, new Value(null, i, new byte[100]));
+        }
+        assertTrue(store.size() < 2000);
+
+        for (int i = 0; i < 10; i++) {
+            store.put("large-" + i, new Value(null, i, new byte[8 * 1024]));
+            assertTrue(store.containsKey("large-" + i));
+        }
+        for (int i = 0; i < 100; i++) {
+            store.put("small-" + i, new Value(null, i, new byte[100]));
+            assertTrue(store.containsKey("small-" + i));
+        }
+
+        assertEquals(0, store.getDroppedWrites());
+        assertTrue(store.getSizeInMemory() <= SLAB_SIZE * 4);
+    }
+
+    @Test
+    public void testMarkersAreNotEvictedToMakeRoom() {
+        OffHeapRegionStore store = newStore(SLAB_SIZE);
+        int markers = fillWithMarkers(store);
+
+        store.put("value", new Value(null, 0L, new byte[1024]));
+
+        assertFalse(store.containsKey("value"));
+        assertEquals(1, store.getDroppedWrites());
+        assertEquals(markers, store.size());
+    }
+
+    @Test
+    public void testKeysAreLockedWhenMemoryIsExhausted() {
+        OffHeapRegionStore store = newStore(SLAB_SIZE);
+        fillWithMarkers(store);
+        ExpiryMarker lock = new ExpiryMarker(null, 100L, "lock");
+
+        assertNull(store.putIfAbsent("locked", lock));
+        Expirable locked = store.get("locked");
+        assertTrue(locked.matches(lock));
+        assertNotNull(store.putIfAbsent("locked", new Value(null, 0L, "stale")));
+        assertTrue(store.get("locked").matches(lock));
+
+        Value updated = new Value("v2", 200L, "updated");
+        assertTrue(store.replace("locked", locked, updated));
+        assertEquals("updated", store.get("locked").getValue());
+        assertTrue(store.remove("locked", store.get("locked")));
+        assertEquals(0, store.getDroppedWrites());
+    }
+
+    private static int fillWithMarkers(final OffHeapRegionStore store) {
+        int markers = 0;
+        while (store.getOverflowSize() == 0) {
+            store.put(markers, new ExpiryMarker(null, 100L, "marker-" + markers));
+            markers++;
+        }
+        assertEquals(0, store.getDroppedWrites());
+        return markers;
+    }
+
+    @Test
+    public void testEmptySlabsAreHandedToOtherSizeClasses() {
+        SlabAllocator allocator = new SlabAllocator(SLAB_SIZE * 2, SLAB_SIZE, 16);
+        List<Long> addresses = new ArrayList<Long>();
+        long address;
+        while ((address = allocator.store(new byte[100])) >= 0) {
+            addresses.add(address);
+        }
+        assertTrue(allocator.store(new byte[1000]) < 0);
+        assertTrue(allocator.victimSlab(allocator.sizeClassFor(1000)) >= 0);
+
+        for (Long stored : addresses) {
+            allocator.free(stored);
+        }
+
+        assertTrue(allocator.store(new byte[1000]) >= 0);
+        assertTrue(allocator.store(new byte[100]) >= 0);
+        assertEquals(SLAB_SIZE * 2, allocator.getReservedMemory());
+    }
+
+    @Test
+    public void testMaxEntriesKeepsStoreBelowHighWaterMark() {
+        OffHeapRegionStore store = newStore(SLAB_SIZE);
+        MaxSizeConfig maxSizeConfig = new MaxSizeConfig(1000, MaxSizeConfig.MaxSizePolicy.PER_NODE);
+        assertEquals(1000, store.maxEntries(maxSizeConfig));
+
+        for (int i = 0; i < 100; i++) {
+            store.put(i, new Value(null, i, new byte[1024]));
+        }
+
+        assertTrue(store.maxEntries(maxSizeConfig) < store.size());
+    }
+
+    @Test
+    public void testIteration() {
+        OffHeapRegionStore store = newStore(SLAB_SIZE * 4);
+        for (int i = 0; i < 10; i++) {
+            store.put(i, new Value(null, i, "value-" + i));
+        }
+
+        int entries = 0;
+        for (Map.Entry<Object, Expirable> entry : store.entrySet()) {
+            assertEquals("value-" + entry.getKey(), entry.getValue().getValue());
+            entries++;
+        }
+        assertEquals(10, entries);
+        assertEquals(10, store.keySet().size());
+    }
+
+    private OffHeapRegionStore newStore(final long maxMemory) {
+        return new OffHeapRegionStore(serializationService, new SlabAllocator(maxMemory, SLAB_SIZE, 16));
+    }
+}
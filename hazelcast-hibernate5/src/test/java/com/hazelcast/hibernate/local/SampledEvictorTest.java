@@ -0,0 +1,116 @@
+package com.hazelcast.hibernate.local;
+
+import com.hazelcast.hibernate.serialization.Expirable;
+import com.hazelcast.hibernate.serialization.ExpiryMarker;
+import com.hazelcast.hibernate.serialization.Value;
+import org.junit.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.junit.Assert.*;
+
+public class SampledEvictorTest {
+
+    @Test
+    public void testNothingEvictedBelowMaxSize() {
+        ConcurrentMap<Object, Expirable> cache = newCache(50, 0L);
+
+        assertEquals(0, new SampledEvictor().cleanup(cache, 100, 0L, 1000L));
+        assertEquals(50, cache.size());
+    }
+
+    @Test
+    public void testEvictsOldestEntriesAboveMaxSize() {
+        ConcurrentMap<Object, Expirable> cache = newCache(0, 0L);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, new Value(null, i, "value-" + i));
+        }
+
+        // 100 - 100 + 20% of 100
+        assertEquals(20, new SampledEvictor().cleanup(cache, 100, 0L, 1000L));
+        assertEquals(80, cache.size());
+        for (int i = 0; i < 20; i++) {
+            assertFalse(cache.containsKey(i));
+        }
+    }
+
+    @Test
+    public void testEvictsEntriesWithSameTimestamp() {
+        ConcurrentMap<Object, Expirable> cache = newCache(150, 100L);
+
+        assertEquals(70, new SampledEvictor().cleanup(cache, 100, 0L, 1000L));
+        assertEquals(80, cache.size());
+    }
+
+    @Test
+    public void testStaysWithinMaxSizeWhenSampleIsSmall() {
+        ConcurrentMap<Object, Expirable> cache = newCache(0, 0L);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, new Value(null, i, "value-" + i));
+        }
+
+        new SampledEvictor(1).cleanup(cache, 500, 0L, 2000L);
+        assertTrue(cache.size() <= 500);
+    }
+
+    @Test
+    public void testRemovesExpiredEntries() {
+        ConcurrentMap<Object, Expirable> cache = newCache(10, 100L);
+        for (int i = 10; i < 15; i++) {
+            cache.put(i, new Value(null, 900L, "value-" + i));
+        }
+
+        assertEquals(10, new SampledEvictor().cleanup(cache, 0, 500L, 1000L));
+        assertEquals(5, cache.size());
+    }
+
+    @Test
+    public void testIgnoresExpiryMarkers() {
+        ConcurrentMap<Object, Expirable> cache = newCache(0, 0L);
+        cache.put("marker", new ExpiryMarker(null, 0L, "id"));
+
+        assertEquals(0, new SampledEvictor().cleanup(cache, 1, 500L, 1000L));
+        assertTrue(cache.containsKey("marker"));
+    }
+
+    @Test
+    public void testLimitedScanForExpiredEntriesCarriesOn() {
+        ConcurrentMap<Object, Expirable> cache = newCache(100, 100L);
+        SampledEvictor evictor = new SampledEvictor();
+
+        int removed = 0;
+        for (int i = 0; i < 10; i++) {
+            int removedByCleanup = evictor.cleanup(cache, 0, 500L, 1000L, 10);
+            assertTrue(removedByCleanup <= 10);
+            removed += removedByCleanup;
+        }
+        assertEquals(100, removed);
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testLimitedEvictionIsLeftForNextCleanup() {
+        ConcurrentMap<Object, Expirable> cache = newCache(0, 0L);
+        for (int i = 0; i < 2000; i++) {
+            cache.put(i, new Value(null, i, "value-" + i));
+        }
+        SampledEvictor evictor = new SampledEvictor();
+
+        // Half of the visits sample, the other half evict
+        int removed = evictor.cleanup(cache, 1000, 0L, 3000L, 200);
+        assertTrue(removed > 0);
+        assertTrue(removed <= 100);
+        while (cache.size() > 1000) {
+            assertTrue(evictor.cleanup(cache, 1000, 0L, 3000L, 200) > 0);
+        }
+    }
+
+    private static ConcurrentMap<Object, Expirable> newCache(final int entries, final long timestamp) {
+        ConcurrentMap<Object, Expirable> cache = new ConcurrentHashMap<Object, Expirable>();
+        for (int i = 0; i < entries; i++) {
+            cache.put(i, new Value(null, timestamp, "value-" + i));
+        }
+        return cache;
+    }
+}
@@ -0,0 +1,141 @@
+package com.hazelcast.hibernate.local;
+
+import com.hazelcast.config.MaxSizeConfig;
+import com.hazelcast.hibernate.serialization.Expirable;
+import com.hazelcast.hibernate.serialization.ExpiryMarker;
+import com.hazelcast.hibernate.serialization.Value;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SizeTrackingMapTest {
+
+    private final EntrySizeEstimator estimator = new EntrySizeEstimator();
+
+    @Test
+    public void testLargerValuesAreEstimatedLarger() {
+        long small = estimator.estimate(1, new Value(null, 0L, new Serializable[]{"a", 1L}));
+        long large = estimator.estimate(1, new Value(null, 0L, new Serializable[]{new byte[10000], 1L}));
+
+        assertTrue(small > 0);
+        assertTrue(large > small + 9000);
+    }
+
+    @Test
+    public void testTracksPutReplaceAndRemove() {
+        SizeTrackingMap map = new SizeTrackingMap(estimator);
+        Value first = new Value(null, 0L, "first");
+        Value second = new Value(null, 0L, "a much longer second value");
+
+        map.put(1, first);
+        assertEquals(estimator.estimate(1, first), map.getSizeInMemory());
+
+        assertTrue(map.replace(1, first, second));
+        assertEquals(estimator.estimate(1, second), map.getSizeInMemory());
+
+        assertFalse(map.remove(1, first));
+        assertEquals(estimator.estimate(1, second), map.getSizeInMemory());
+
+        assertTrue(map.remove(1, second));
+        assertEquals(0, map.getSizeInMemory());
+    }
+
+    @Test
+    public void testTracksPutIfAbsentAndClear() {
+        SizeTrackingMap map = new SizeTrackingMap(estimator);
+        ExpiryMarker marker = new ExpiryMarker(null, 0L, "1");
+
+        assertNull(map.putIfAbsent(1, marker));
+        assertNotNull(map.putIfAbsent(1, new Value(null, 0L, "ignored")));
+        map.put(2, new Value(null, 0L, "value"));
+        assertEquals(estimator.estimate(1, marker) + estimator.estimate(2, map.get(2)), map.getSizeInMemory());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.getSizeInMemory());
+    }
+
+    @Test
+    public void testTracksRemovalThroughViewsAndIterators() {
+        SizeTrackingMap map = new SizeTrackingMap(estimator);
+        for (int i = 0; i < 6; i++) {
+            map.put(i, new Value(null, 0L, "value-" + i));
+        }
+
+        map.keySet().remove(0);
+        map.entrySet().remove(new AbstractMap.SimpleEntry<Object, Expirable>(1, map.get(1)));
+        map.values().remove(map.get(2));
+        Iterator<Object> keys = map.keySet().iterator();
+        keys.next();
+        keys.remove();
+        Iterator<Map.Entry<Object, Expirable>> entries = map.entrySet().iterator();
+        entries.next();
+        entries.remove();
+
+        assertEquals(1, map.size());
+        Map.Entry<Object, Expirable> remaining = map.entrySet().iterator().next();
+        assertEquals(estimator.estimate(remaining.getKey(), remaining.getValue()), map.getSizeInMemory());
+
+        Iterator<Expirable> values = map.values().iterator();
+        values.next();
+        values.remove();
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.getSizeInMemory());
+    }
+
+    @Test
+    public void testEntriesCannotBeSetThroughViews() {
+        SizeTrackingMap map = new SizeTrackingMap(estimator);
+        map.put(1, new Value(null, 0L, "value"));
+
+        try {
+            map.entrySet().iterator().next().setValue(new Value(null, 0L, "a much longer replacement value"));
+            fail("Entries of the view should be immutable");
+        } catch (UnsupportedOperationException expected) {
+            assertEquals(estimator.estimate(1, map.get(1)), map.getSizeInMemory());
+        }
+    }
+
+    @Test
+    public void testMaxEntriesForEntryCountPolicy() {
+        SizeTrackingMap map = new SizeTrackingMap(estimator);
+
+        assertEquals(100, map.maxEntries(new MaxSizeConfig(100, MaxSizeConfig.MaxSizePolicy.PER_NODE)));
+    }
+
+    @Test
+    public void testMaxEntriesForUsedHeapSizePolicy() {
+        SizeTrackingMap map = new SizeTrackingMap(estimator);
+        MaxSizeConfig maxSizeConfig = new MaxSizeConfig(1, MaxSizeConfig.MaxSizePolicy.USED_HEAP_SIZE);
+        map.put(0, new Value(null, 0L, new byte[100 * 1024]));
+
+        assertEquals(Integer.MAX_VALUE, map.maxEntries(maxSizeConfig));
+
+        for (int i = 1; i < 20; i++) {
+            map.put(i, new Value(null, 0L, new byte[100 * 1024]));
+        }
+        // Roughly ten 100 KB entries fit into 1 MB
+        int maxEntries = map.maxEntries(maxSizeConfig);
+        assertTrue(maxEntries >= 9 && maxEntries <= 10);
+    }
+
+    @Test
+    public void testCleanupEvictsDownToMaxBytes() {
+        SizeTrackingMap map = new SizeTrackingMap(estimator);
+        MaxSizeConfig maxSizeConfig = new MaxSizeConfig(1, MaxSizeConfig.MaxSizePolicy.USED_HEAP_SIZE);
+        for (int i = 0; i < 20; i++) {
+            map.put(i, new Value(null, i, new byte[100 * 1024]));
+        }
+
+        new SampledEvictor().cleanup(map, map.maxEntries(maxSizeConfig), 0L, 1000L);
+
+        assertTrue(map.getSizeInMemory() <= 1024 * 1024);
+        assertFalse(map.containsKey(0));
+        assertTrue(map.containsKey(19));
+    }
+}
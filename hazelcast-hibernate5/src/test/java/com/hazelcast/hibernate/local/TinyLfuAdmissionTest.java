@@ -0,0 +1,134 @@
+package com.hazelcast.hibernate.local;
+
+import com.hazelcast.config.EvictionPolicy;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.MaxSizeConfig;
+import com.hazelcast.hibernate.serialization.Expirable;
+import com.hazelcast.hibernate.serialization.ExpiryMarker;
+import com.hazelcast.hibernate.serialization.Value;
+import org.junit.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.junit.Assert.*;
+
+public class TinyLfuAdmissionTest {
+
+    @Test
+    public void testCreateRequiresLfuEvictionPolicy() {
+        MapConfig config = new MapConfig("cache").setMaxSizeConfig(new MaxSizeConfig(100, MaxSizeConfig.MaxSizePolicy.PER_NODE));
+
+        assertNull(TinyLfuAdmission.create(null));
+        assertNull(TinyLfuAdmission.create(config));
+        assertNotNull(TinyLfuAdmission.create(config.setEvictionPolicy(EvictionPolicy.LFU)));
+    }
+
+    @Test
+    public void testCreateRequiresMaxSize() {
+        MapConfig config = new MapConfig("cache").setEvictionPolicy(EvictionPolicy.LFU);
+
+        assertNull(TinyLfuAdmission.create(config));
+    }
+
+    @Test
+    public void testFrequentlyReadEntriesAreNotDisplacedByOneHitWonders() {
+        TinyLfuAdmission admission = new TinyLfuAdmission(100);
+        ConcurrentMap<Object, Expirable> cache = new ConcurrentHashMap<Object, Expirable>();
+        for (int i = 0; i < 100; i++) {
+            put(admission, cache, i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 100; i++) {
+                admission.recordAccess(i);
+            }
+        }
+
+        for (int i = 1000; i < 2000; i++) {
+            put(admission, cache, i);
+        }
+
+        assertTrue(cache.size() <= 100);
+        int hot = 0;
+        for (int i = 0; i < 100; i++) {
+            if (cache.containsKey(i)) {
+                hot++;
+            }
+        }
+        assertTrue("Only " + hot + " frequently read entries survived", hot >= 95);
+    }
+
+    @Test
+    public void testFrequentlyReadNewEntriesAreAdmitted() {
+        TinyLfuAdmission admission = new TinyLfuAdmission(100);
+        ConcurrentMap<Object, Expirable> cache = new ConcurrentHashMap<Object, Expirable>();
+        for (int i = 0; i < 100; i++) {
+            put(admission, cache, i);
+        }
+
+        for (int i = 1000; i < 1010; i++) {
+            for (int reads = 0; reads < 5; reads++) {
+                admission.recordAccess(i);
+            }
+            put(admission, cache, i);
+        }
+        // Push the new entries out of the window so they have to compete with the main area
+        for (int i = 2000; i < 2010; i++) {
+            put(admission, cache, i);
+        }
+
+        for (int i = 1000; i < 1010; i++) {
+            assertTrue(cache.containsKey(i));
+        }
+    }
+
+    @Test
+    public void testExpiryMarkersAreNotEvicted() {
+        TinyLfuAdmission admission = new TinyLfuAdmission(10);
+        ConcurrentMap<Object, Expirable> cache = new ConcurrentHashMap<Object, Expirable>();
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, new ExpiryMarker(null, Long.MAX_VALUE, "marker-" + i));
+        }
+
+        for (int i = 100; i < 200; i++) {
+            put(admission, cache, i);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(cache.get(i) instanceof ExpiryMarker);
+        }
+    }
+
+    @Test
+    public void testSketchEstimatesFrequency() {
+        FrequencySketch sketch = new FrequencySketch(64);
+        for (int i = 0; i < 5; i++) {
+            sketch.increment("hot");
+        }
+        sketch.increment("cold");
+
+        assertTrue(sketch.frequency("hot") >= 5);
+        assertTrue(sketch.frequency("cold") >= 1);
+        assertTrue(sketch.frequency("hot") > sketch.frequency("cold"));
+    }
+
+    @Test
+    public void testSketchAgesCounters() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 15; i++) {
+            sketch.increment("hot");
+        }
+        assertEquals(15, sketch.frequency("hot"));
+
+        for (int i = 0; i < 200; i++) {
+            sketch.increment("other-" + i);
+        }
+
+        assertTrue(sketch.frequency("hot") < 15);
+    }
+
+    private static void put(TinyLfuAdmission admission, ConcurrentMap<Object, Expirable> cache, int key) {
+        admission.admit(key, cache);
+        cache.putIfAbsent(key, new Value(null, 0L, "value-" + key));
+    }
+}
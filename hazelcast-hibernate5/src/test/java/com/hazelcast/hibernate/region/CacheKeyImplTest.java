@@ -0,0 +1,120 @@
+package com.hazelcast.hibernate.region;
+
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+import com.hazelcast.nio.serialization.Data;
+import com.hazelcast.spi.serialization.SerializationService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.type.BigDecimalType;
+import org.hibernate.type.LongType;
+import org.hibernate.type.UUIDBinaryType;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class CacheKeyImplTest {
+
+    private final SerializationService serializationService = new DefaultSerializationServiceBuilder().build();
+    private final SessionFactoryImplementor factory = mockFactory("com.example.Account", "com.example.Order");
+
+    @Test
+    public void testLongIdRoundTrip() {
+        CacheKeyImpl key = new CacheKeyImpl(42L, LongType.INSTANCE, "com.example.Order", "tenant", factory,
+                KeyDictionary.of(factory));
+
+        CacheKeyImpl copy = roundTrip(key);
+
+        assertEquals(key, copy);
+        assertEquals(key.hashCode(), copy.hashCode());
+        assertEquals(42L, copy.getIdentifier());
+        assertEquals("com.example.Order#42", copy.toString());
+    }
+
+    @Test
+    public void testUuidIdRoundTrip() {
+        UUID id = UUID.randomUUID();
+        CacheKeyImpl key = new CacheKeyImpl(id, UUIDBinaryType.INSTANCE, "com.example.Order", null, factory,
+                KeyDictionary.of(factory));
+
+        CacheKeyImpl copy = roundTrip(key);
+
+        assertEquals(key, copy);
+        assertEquals(id, copy.getIdentifier());
+    }
+
+    @Test
+    public void testOtherIdsAreWrittenWithTheirType() {
+        CacheKeyImpl key = new CacheKeyImpl(new BigDecimal("1.5"), BigDecimalType.INSTANCE, "com.example.Order", null,
+                factory, KeyDictionary.of(factory));
+
+        CacheKeyImpl copy = roundTrip(key);
+
+        assertEquals(key, copy);
+        assertEquals(key.hashCode(), copy.hashCode());
+    }
+
+    @Test
+    public void testRoleIsWrittenAsId() {
+        CacheKeyImpl withoutDictionary = new CacheKeyImpl(42L, LongType.INSTANCE, "com.example.Order", null, factory);
+        CacheKeyImpl withDictionary = new CacheKeyImpl(42L, LongType.INSTANCE, "com.example.Order", null, factory,
+                KeyDictionary.of(factory));
+
+        Data compact = serializationService.toData(withDictionary);
+        assertTrue(compact.totalSize() < serializationService.toData(withoutDictionary).totalSize());
+        assertTrue(compact.totalSize() < 40);
+    }
+
+    @Test
+    public void testKeysOfDifferentRolesAreNotEqual() {
+        KeyDictionary dictionary = KeyDictionary.of(factory);
+        CacheKeyImpl order = new CacheKeyImpl(42L, LongType.INSTANCE, "com.example.Order", null, factory, dictionary);
+        CacheKeyImpl account = new CacheKeyImpl(42L, LongType.INSTANCE, "com.example.Account", null, factory,
+                dictionary);
+
+        assertNotEquals(order, account);
+        assertNotEquals(roundTrip(order), roundTrip(account));
+    }
+
+    @Test
+    public void testNamesHaveTheSameIdWhateverElseIsMapped() {
+        KeyDictionary dictionary = KeyDictionary.of(factory);
+        KeyDictionary other = KeyDictionary.of(mockFactory("com.example.Order", "com.example.Invoice"));
+
+        assertEquals(dictionary.idOf("com.example.Order"), other.idOf("com.example.Order"));
+        assertEquals(KeyDictionary.UNKNOWN, dictionary.idOf("com.example.Invoice"));
+        assertEquals(KeyDictionary.UNKNOWN, dictionary.idOf("com.example.Unknown"));
+    }
+
+    @Test
+    public void testKeysAreTheSameWhateverElseIsMapped() {
+        SessionFactoryImplementor other = mockFactory("com.example.Order", "com.example.Invoice");
+        CacheKeyImpl key = new CacheKeyImpl(42L, LongType.INSTANCE, "com.example.Order", null, factory,
+                KeyDictionary.of(factory));
+        CacheKeyImpl otherKey = new CacheKeyImpl(42L, LongType.INSTANCE, "com.example.Order", null, other,
+                KeyDictionary.of(other));
+
+        assertEquals(serializationService.toData(key), serializationService.toData(otherKey));
+        assertEquals(key, otherKey);
+    }
+
+    private CacheKeyImpl roundTrip(final CacheKeyImpl key) {
+        return serializationService.toObject(serializationService.toData(key));
+    }
+
+    private static SessionFactoryImplementor mockFactory(final String... entityNames) {
+        Map<String, ClassMetadata> classMetadata = new HashMap<String, ClassMetadata>();
+        for (String entityName : entityNames) {
+            classMetadata.put(entityName, mock(ClassMetadata.class));
+        }
+        SessionFactoryImplementor factory = mock(SessionFactoryImplementor.class);
+        when(factory.getAllClassMetadata()).thenReturn(classMetadata);
+        when(factory.getAllCollectionMetadata()).thenReturn(new HashMap());
+        return factory;
+    }
+}
@@ -0,0 +1,77 @@
+package com.hazelcast.hibernate.region;
+
+import com.hazelcast.internal.serialization.InternalSerializationService;
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+import com.hazelcast.nio.BufferObjectDataOutput;
+import org.hibernate.cache.spi.entry.CacheEntry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metadata.ClassMetadata;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class EntityNamesTest {
+
+    private final InternalSerializationService serializationService = new DefaultSerializationServiceBuilder().build();
+
+    @Test
+    public void testNamesOfDictionaryAreWrittenAsId() throws IOException {
+        SessionFactoryImplementor factory = mock(SessionFactoryImplementor.class);
+        when(factory.getAllClassMetadata()).thenReturn(Collections.singletonMap("com.example.names.Customer",
+                mock(ClassMetadata.class)));
+        when(factory.getAllCollectionMetadata()).thenReturn(Collections.emptyMap());
+        KeyDictionary.of(factory);
+
+        byte[] bytes = write(new String("com.example.names.Customer"));
+
+        assertEquals(8, bytes.length);
+        assertEquals("com.example.names.Customer", read(bytes));
+        assertSame(read(bytes), read(bytes));
+    }
+
+    @Test
+    public void testOtherNamesAreWrittenInFullAndInterned() throws IOException {
+        String name = read(write(new String("com.example.names.Unmapped")));
+
+        assertSame("com.example.names.Unmapped", name);
+    }
+
+    @Test
+    public void testUnregisteredIdsPassThroughUnresolved() throws IOException {
+        BufferObjectDataOutput out = serializationService.createObjectDataOutput(16);
+        out.writeLong(0x5EEDL);
+        byte[] bytes = out.toByteArray();
+
+        String name = read(bytes);
+        CacheEntry entry = mock(CacheEntry.class);
+        when(entry.getSubclass()).thenReturn(name);
+
+        assertTrue(EntityNames.isUnresolved(entry));
+        assertTrue(Arrays.equals(bytes, write(name)));
+    }
+
+    @Test
+    public void testResolvedEntriesAndOtherValues() {
+        CacheEntry entry = mock(CacheEntry.class);
+        when(entry.getSubclass()).thenReturn("com.example.names.Customer");
+
+        assertFalse(EntityNames.isUnresolved(entry));
+        assertFalse(EntityNames.isUnresolved("value"));
+        assertFalse(EntityNames.isUnresolved(null));
+    }
+
+    private byte[] write(final String name) throws IOException {
+        BufferObjectDataOutput out = serializationService.createObjectDataOutput(64);
+        EntityNames.write(out, name);
+        return out.toByteArray();
+    }
+
+    private String read(final byte[] bytes) throws IOException {
+        return EntityNames.read(serializationService.createObjectDataInput(bytes));
+    }
+}
@@ -0,0 +1,124 @@
+package com.hazelcast.hibernate.region;
+
+import com.hazelcast.core.PartitionAware;
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+import com.hazelcast.partition.strategy.DefaultPartitioningStrategy;
+import com.hazelcast.spi.serialization.SerializationService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.IntegerType;
+import org.hibernate.type.LongType;
+import org.hibernate.type.StringType;
+import org.hibernate.type.Type;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class HazelcastCacheKeysFactoryTest {
+
+    private final SerializationService serializationService = new DefaultSerializationServiceBuilder().build();
+    private final SessionFactoryImplementor factory = mock(SessionFactoryImplementor.class);
+    private final HazelcastCacheKeysFactory keysFactory = new HazelcastCacheKeysFactory();
+
+    public HazelcastCacheKeysFactoryTest() {
+        Map<String, ClassMetadata> classMetadata = new HashMap<String, ClassMetadata>();
+        classMetadata.put("com.example.Order", mock(ClassMetadata.class));
+        when(factory.getAllClassMetadata()).thenReturn(classMetadata);
+        when(factory.getAllCollectionMetadata()).thenReturn(Collections.singletonMap("com.example.Order.lines", null));
+    }
+
+    @Test
+    public void testLongIdentifiersGetPrimitiveKeys() {
+        Object key = keysFactory.createEntityKey(42L, entityPersister(LongType.INSTANCE), factory, null);
+
+        assertTrue(key instanceof LongCacheKey);
+        assertEquals(42L, keysFactory.getEntityId(key));
+        assertEquals(key, keysFactory.createEntityKey(42L, entityPersister(LongType.INSTANCE), factory, null));
+        assertEquals("com.example.Order#42", key.toString());
+    }
+
+    @Test
+    public void testIntIdentifiersGetPrimitiveKeys() {
+        Object key = keysFactory.createCollectionKey(7, collectionPersister(IntegerType.INSTANCE), factory, "tenant");
+
+        assertTrue(key instanceof IntCacheKey);
+        assertEquals(7, keysFactory.getCollectionId(key));
+    }
+
+    @Test
+    public void testPrimitiveKeysRoundTrip() {
+        Object longKey = keysFactory.createEntityKey(42L, entityPersister(LongType.INSTANCE), factory, "tenant");
+        Object intKey = keysFactory.createCollectionKey(7, collectionPersister(IntegerType.INSTANCE), factory, null);
+
+        Object longCopy = serializationService.toObject(serializationService.toData(longKey));
+        Object intCopy = serializationService.toObject(serializationService.toData(intKey));
+
+        assertEquals(longKey, longCopy);
+        assertEquals(longKey.hashCode(), longCopy.hashCode());
+        assertEquals(intKey, intCopy);
+        assertEquals(intKey.hashCode(), intCopy.hashCode());
+    }
+
+    @Test
+    public void testKeysDifferByRoleAndTenant() {
+        Object entityKey = keysFactory.createEntityKey(7L, entityPersister(LongType.INSTANCE), factory, null);
+        Object collectionKey = keysFactory.createCollectionKey(7L, collectionPersister(LongType.INSTANCE), factory, null);
+        Object tenantKey = keysFactory.createEntityKey(7L, entityPersister(LongType.INSTANCE), factory, "tenant");
+
+        assertNotEquals(entityKey, collectionKey);
+        assertNotEquals(entityKey, tenantKey);
+    }
+
+    @Test
+    public void testOtherIdentifiersGetGeneralKeys() {
+        Object key = keysFactory.createEntityKey("ORD-1", entityPersister(StringType.INSTANCE), factory, null);
+
+        assertTrue(key instanceof CacheKeyImpl);
+        assertEquals("ORD-1", keysFactory.getEntityId(key));
+    }
+
+    @Test
+    public void testKeysArePartitionedByContentByDefault() {
+        Object key = keysFactory.createEntityKey(42L, entityPersister(LongType.INSTANCE), factory, null);
+
+        assertNull(((PartitionAware) key).getPartitionKey());
+    }
+
+    @Test
+    public void testCollectionKeysArePartitionedWithTheirOwner() {
+        HazelcastCacheKeysFactory ownerKeysFactory = new HazelcastCacheKeysFactory(true);
+        DefaultPartitioningStrategy partitioningStrategy = new DefaultPartitioningStrategy();
+        for (Type type : new Type[]{LongType.INSTANCE, StringType.INSTANCE}) {
+            Object id = type == LongType.INSTANCE ? (Object) 42L : "ORD-42";
+            Object entityKey = ownerKeysFactory.createEntityKey(id, entityPersister(type), factory, null);
+            Object collectionKey = ownerKeysFactory.createCollectionKey(id, collectionPersister(type), factory, null);
+
+            assertNotEquals(entityKey, collectionKey);
+            assertEquals(serializationService.toData(entityKey, partitioningStrategy).getPartitionHash(),
+                    serializationService.toData(collectionKey, partitioningStrategy).getPartitionHash());
+            Object copy = serializationService.toObject(serializationService.toData(collectionKey));
+            assertEquals(id, ((PartitionAware) copy).getPartitionKey());
+        }
+    }
+
+    private static EntityPersister entityPersister(final Type identifierType) {
+        EntityPersister persister = mock(EntityPersister.class);
+        when(persister.getIdentifierType()).thenReturn(identifierType);
+        when(persister.getRootEntityName()).thenReturn("com.example.Order");
+        return persister;
+    }
+
+    private static CollectionPersister collectionPersister(final Type keyType) {
+        CollectionPersister persister = mock(CollectionPersister.class);
+        when(persister.getKeyType()).thenReturn(keyType);
+        when(persister.getRole()).thenReturn("com.example.Order.lines");
+        return persister;
+    }
+}
@@ -0,0 +1,99 @@
+package com.hazelcast.hibernate.serialization;
+
+import com.hazelcast.internal.serialization.InternalSerializationService;
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+import com.hazelcast.nio.BufferObjectDataOutput;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
+import org.hibernate.MappingException;
+import org.hibernate.cache.spi.entry.CacheEntry;
+import org.hibernate.cache.spi.entry.ReferenceCacheEntryImpl;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class DetachedReferenceCacheEntryTest {
+
+    private final InternalSerializationService serializationService = new DefaultSerializationServiceBuilder().build();
+    private final EntityPersister persister = mock(EntityPersister.class);
+    private final SessionFactoryImplementor factory = mock(SessionFactoryImplementor.class);
+
+    @Test
+    public void testEntityIsWrittenWithItsOwnSerializer() throws IOException {
+        when(persister.getEntityName()).thenReturn(Country.class.getName());
+        CacheEntry entry = new ReferenceCacheEntryImpl(new Country("NL"), persister);
+
+        CacheEntry copy = roundTrip(entry);
+
+        assertTrue(copy instanceof DetachedReferenceCacheEntry);
+        assertTrue(copy.isReferenceEntry());
+        assertEquals(Country.class.getName(), copy.getSubclass());
+        assertEquals("NL", ((Country) ((DetachedReferenceCacheEntry) copy).getReference()).code);
+
+        // A detached entry passing through a member is written the same way again
+        CacheEntry secondCopy = roundTrip(copy);
+        assertEquals("NL", ((Country) ((DetachedReferenceCacheEntry) secondCopy).getReference()).code);
+    }
+
+    @Test
+    public void testResolvedEntryRefersToThePersister() {
+        Country country = new Country("NL");
+        when(factory.getEntityPersister(Country.class.getName())).thenReturn(persister);
+        when(persister.canUseReferenceCacheEntries()).thenReturn(true);
+
+        CacheEntry entry = new DetachedReferenceCacheEntry(country, Country.class.getName()).resolve(factory);
+
+        assertTrue(entry instanceof ReferenceCacheEntryImpl);
+        assertSame(country, ((ReferenceCacheEntryImpl) entry).getReference());
+        assertSame(persister, ((ReferenceCacheEntryImpl) entry).getSubclassPersister());
+    }
+
+    @Test
+    public void testEntityNotCachedByReferenceIsNotResolved() {
+        when(factory.getEntityPersister(Country.class.getName())).thenReturn(persister);
+        when(persister.canUseReferenceCacheEntries()).thenReturn(false);
+
+        assertNull(new DetachedReferenceCacheEntry(new Country("NL"), Country.class.getName()).resolve(factory));
+    }
+
+    @Test
+    public void testUnknownEntityIsNotResolved() {
+        when(factory.getEntityPersister("Unknown")).thenThrow(new MappingException("Unknown entity"));
+
+        assertNull(new DetachedReferenceCacheEntry(new Country("NL"), "Unknown").resolve(factory));
+    }
+
+    private CacheEntry roundTrip(final CacheEntry entry) throws IOException {
+        BufferObjectDataOutput out = serializationService.createObjectDataOutput(64);
+        DetachedReferenceCacheEntry.write(out, entry);
+        return DetachedReferenceCacheEntry.read(serializationService.createObjectDataInput(out.toByteArray()));
+    }
+
+    public static class Country implements DataSerializable {
+
+        private String code;
+
+        public Country() {
+        }
+
+        Country(final String code) {
+            this.code = code;
+        }
+
+        @Override
+        public void writeData(final ObjectDataOutput out) throws IOException {
+            out.writeUTF(code);
+        }
+
+        @Override
+        public void readData(final ObjectDataInput in) throws IOException {
+            code = in.readUTF();
+        }
+    }
+}
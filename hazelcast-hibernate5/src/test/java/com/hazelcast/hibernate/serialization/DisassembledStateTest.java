@@ -0,0 +1,65 @@
+package com.hazelcast.hibernate.serialization;
+
+import com.hazelcast.internal.serialization.InternalSerializationService;
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+import com.hazelcast.nio.BufferObjectDataInput;
+import com.hazelcast.nio.BufferObjectDataOutput;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+public class DisassembledStateTest {
+
+    private final InternalSerializationService serializationService = new DefaultSerializationServiceBuilder().build();
+
+    @Test
+    public void testValuesOfAllKindsRoundTrip() throws IOException {
+        Serializable[] state = {null, 42L, 7, "name", true, false, (short) 3, (byte) 4, 1.5d, 2.5f, 'c',
+                new BigDecimal("12.34"), new Serializable[]{"nested"}};
+
+        Serializable[] copy = roundTrip(state);
+
+        assertEquals(state.length, copy.length);
+        for (int i = 0; i < state.length - 1; i++) {
+            assertEquals(state[i], copy[i]);
+        }
+        assertArrayEquals((Serializable[]) state[state.length - 1], (Serializable[]) copy[state.length - 1]);
+    }
+
+    @Test
+    public void testEmptyStateRoundTrips() throws IOException {
+        assertEquals(0, roundTrip(new Serializable[0]).length);
+    }
+
+    @Test
+    public void testCommonValuesAreWrittenWithoutTypeIds() throws IOException {
+        Serializable[] state = {1L, 2L, "a", null, 3, true};
+
+        BufferObjectDataOutput columns = serializationService.createObjectDataOutput(64);
+        DisassembledState.write(columns, state);
+        BufferObjectDataOutput objects = serializationService.createObjectDataOutput(64);
+        objects.writeInt(state.length);
+        for (Serializable value : state) {
+            objects.writeObject(value);
+        }
+
+        // Length, three bytes of kinds, two longs, a string and an int
+        assertEquals(4 + 3 + 16 + 5 + 4, columns.position());
+        // Each value written as an object has a type id of four bytes ahead of it
+        assertTrue(columns.position() + 4 * state.length - 3 < objects.position());
+    }
+
+    private Serializable[] roundTrip(final Serializable[] state) throws IOException {
+        BufferObjectDataOutput out = serializationService.createObjectDataOutput(64);
+        DisassembledState.write(out, state);
+        byte[] bytes = out.toByteArray();
+        BufferObjectDataInput in = serializationService.createObjectDataInput(bytes);
+        Serializable[] copy = DisassembledState.read(in);
+        assertEquals(bytes.length, in.position());
+        return copy;
+    }
+}
@@ -1,12 +1,28 @@
 package com.hazelcast.hibernate.serialization;
 
+import com.hazelcast.internal.serialization.InternalSerializationService;
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.Data;
+import com.hazelcast.nio.serialization.DataSerializable;
 import org.hibernate.internal.util.compare.ComparableComparator;
+import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
+
 import static org.junit.Assert.*;
 
 public class ValueTest {
 
+    private final InternalSerializationService serializationService = new DefaultSerializationServiceBuilder().build();
+
+    @Before
+    public void setUp() {
+        CountingPayload.reads = 0;
+    }
+
     @Test
     public void testGetValue() throws Exception {
         String expectedValue = "Some value";
@@ -77,4 +93,71 @@ public class ValueTest {
         assertTrue(value.isReplaceableBy(99L, 11, ComparableComparator.INSTANCE));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testSerializedValueIsNotDeserializedWhenRejected() {
+        Value value = roundTrip(new Value(10, 100L, new CountingPayload("state")));
+
+        assertEquals(10, value.getVersion());
+        assertEquals(100L, value.getTimestamp());
+        assertNull(value.getValue(99L));
+        assertEquals(0, CountingPayload.reads);
+    }
+
+    @Test
+    public void testSerializedValueIsDeserializedOnce() {
+        Value value = roundTrip(new Value(null, 100L, new CountingPayload("state")));
+
+        assertEquals("state", ((CountingPayload) value.getValue(100L)).state);
+        assertSame(value.getValue(100L), value.getValue());
+        assertEquals(1, CountingPayload.reads);
+    }
+
+    @Test
+    public void testSerializedValueIsWrittenAgainWithoutDeserializing() {
+        Data data = serializationService.toData(new Value(null, 100L, new CountingPayload("state")));
+        Value value = serializationService.toObject(data);
+
+        assertEquals(data, serializationService.toData(value));
+        assertEquals(0, CountingPayload.reads);
+
+        value.getValue();
+        assertEquals(data, serializationService.toData(value));
+    }
+
+    @Test
+    public void testSerializedNullValue() {
+        Value value = roundTrip(new Value(null, 100L, null));
+
+        assertNull(value.getValue());
+        assertEquals(100L, value.getTimestamp());
+    }
+
+    private Value roundTrip(final Value value) {
+        return serializationService.toObject(serializationService.toData(value));
+    }
+
+    public static class CountingPayload implements DataSerializable {
+
+        private static int reads;
+
+        private String state;
+
+        public CountingPayload() {
+        }
+
+        CountingPayload(final String state) {
+            this.state = state;
+        }
+
+        @Override
+        public void writeData(final ObjectDataOutput out) throws IOException {
+            out.writeUTF(state);
+        }
+
+        @Override
+        public void readData(final ObjectDataInput in) throws IOException {
+            reads++;
+            state = in.readUTF();
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.hazelcast.hibernate.region;
 
+import com.hazelcast.hibernate.CacheEnvironment;
 import com.hazelcast.hibernate.access.AccessDelegate;
 import org.hibernate.cache.CacheException;
 import org.hibernate.cache.spi.CacheKeysFactory;
@@ -26,6 +27,8 @@ import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.persister.collection.CollectionPersister;
 
+import java.util.Properties;
+
 /**
  * Simple adapter implementation for transactional / concurrent access control on collections
  */
@@ -33,10 +36,22 @@ public final class CollectionRegionAccessStrategyAdapter implements CollectionRe
 
     private final AccessDelegate<? extends HazelcastCollectionRegion> delegate;
 
-    private final CacheKeysFactory cacheKeysFactory = new HazelcastCacheKeysFactory();
+    private final CacheKeysFactory cacheKeysFactory;
 
     public CollectionRegionAccessStrategyAdapter(final AccessDelegate<? extends HazelcastCollectionRegion> delegate) {
         this.delegate = delegate;
+        this.cacheKeysFactory = new HazelcastCacheKeysFactory();
+    }
+
+    /**
+     * @param delegate the access delegate
+     * @param props    the region properties, which tell whether keys are partitioned by owner, see
+     *                 {@link CacheEnvironment#PARTITION_BY_OWNER}
+     */
+    public CollectionRegionAccessStrategyAdapter(final AccessDelegate<? extends HazelcastCollectionRegion> delegate,
+                                                 final Properties props) {
+        this.delegate = delegate;
+        this.cacheKeysFactory = new HazelcastCacheKeysFactory(CacheEnvironment.isPartitionByOwnerEnabled(props));
     }
 
     @Override
@@ -46,11 +46,15 @@ public abstract class AbstractHazelcastCacheRegionFactory extends RegionFactoryT
 
     protected CleanupService cleanupService;
     protected HazelcastInstance instance;
+    protected boolean reliableInvalidation;
+    protected int asyncPutFromLoadWindow;
+    protected int statisticsRefreshInterval;
 
     private final CacheKeysFactory cacheKeysFactory;
     private final ILogger log = Logger.getLogger(getClass());
 
     private IHazelcastInstanceLoader instanceLoader;
+    private CachedClusterClock clock;
 
     @SuppressWarnings("unused")
     public AbstractHazelcastCacheRegionFactory() {
@@ -151,19 +155,39 @@ public abstract class AbstractHazelcastCacheRegionFactory extends RegionFactoryT
             }
             instance = instanceLoader.loadInstance();
         }
-        cleanupService = new CleanupService(instance.getName());
+        final Properties properties = toProperties(configValues);
+        cleanupService = new CleanupService(instance.getName(), CleanupService.DEFAULT_FIXED_DELAY,
+                CacheEnvironment.getInvalidationBatchWindowInMillis(properties));
+        reliableInvalidation = CacheEnvironment.isReliableInvalidationEnabled(properties);
+        asyncPutFromLoadWindow = CacheEnvironment.getAsyncPutFromLoadWindow(properties);
+        statisticsRefreshInterval = CacheEnvironment.getStatisticsRefreshIntervalInMillis(properties);
+        final int clusterTimeRefreshInterval = CacheEnvironment.getClusterTimeRefreshIntervalInMillis(properties);
+        if (clusterTimeRefreshInterval > 0) {
+            // Only one clock per instance is used; another factory on the same instance may have registered one
+            final CachedClusterClock candidate = new CachedClusterClock(instance, clusterTimeRefreshInterval);
+            if (HazelcastTimestamper.registerTimestampSource(instance, candidate)) {
+                candidate.start();
+                clock = candidate;
+            }
+        }
     }
 
     @SuppressWarnings("Duplicates")
     @Override
     protected void releaseFromUse() {
+        // Stop first, so the invalidations still collected are published before the instance is unloaded
+        cleanupService.stop();
+        if (clock != null) {
+            HazelcastTimestamper.deregisterTimestampSource(instance, clock);
+            clock.stop();
+            clock = null;
+        }
         if (instanceLoader != null) {
             log.info("Shutting down " + getClass().getSimpleName());
             instanceLoader.unloadInstance();
             instance = null;
             instanceLoader = null;
         }
-        cleanupService.stop();
     }
 
     private Properties toProperties(final Map configValues) {
@@ -51,7 +51,8 @@ public class HazelcastCacheRegionFactory extends AbstractHazelcastCacheRegionFac
                 sessionFactory.getSessionFactoryOptions()
         );
 
-        return new IMapRegionCache(this, qualifiedRegionName, instance);
+        return new IMapRegionCache(this, qualifiedRegionName, instance, asyncPutFromLoadWindow,
+                statisticsRefreshInterval);
     }
 
     @Override
@@ -65,6 +66,6 @@ public class HazelcastCacheRegionFactory extends AbstractHazelcastCacheRegionFac
                 sessionFactory.getSessionFactoryOptions()
         );
 
-        return new IMapRegionCache(this, qualifiedRegionName, instance);
+        return new IMapRegionCache(this, qualifiedRegionName, instance, 0, statisticsRefreshInterval);
     }
 }
@@ -52,7 +52,8 @@ public class HazelcastLocalCacheRegionFactory extends AbstractHazelcastCacheRegi
                 sessionFactory.getSessionFactoryOptions()
         );
 
-        final LocalRegionCache regionCache = new LocalRegionCache(this, qualifiedRegionName, instance, regionConfig);
+        final LocalRegionCache regionCache = new LocalRegionCache(this, qualifiedRegionName, instance, regionConfig, true,
+                reliableInvalidation);
         cleanupService.registerCache(regionCache);
         return regionCache;
     }
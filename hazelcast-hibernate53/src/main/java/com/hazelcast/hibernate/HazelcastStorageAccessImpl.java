@@ -17,6 +17,8 @@
 package com.hazelcast.hibernate;
 
 import com.hazelcast.core.OperationTimeoutException;
+import com.hazelcast.hibernate.region.EntityNames;
+import com.hazelcast.hibernate.serialization.DetachedReferenceCacheEntry;
 import com.hazelcast.logging.Logger;
 import org.hibernate.cache.CacheException;
 import org.hibernate.cache.spi.access.SoftLock;
@@ -65,7 +67,12 @@ public class HazelcastStorageAccessImpl implements HazelcastStorageAccess {
     @Override
     public Object getFromCache(final Object key, final SharedSessionContractImplementor session) throws CacheException {
         try {
-            return delegate.get(key, nextTimestamp());
+            final Object value = delegate.get(key, nextTimestamp());
+            if (value instanceof DetachedReferenceCacheEntry) {
+                // Reference entries read from a distributed region come without the persister of their entity
+                return ((DetachedReferenceCacheEntry) value).resolve(session.getFactory());
+            }
+            return EntityNames.isUnresolved(value) ? null : value;
         } catch (OperationTimeoutException e) {
             return null;
         }
@@ -81,6 +88,16 @@ public class HazelcastStorageAccessImpl implements HazelcastStorageAccess {
         }
     }
 
+    @Override
+    public void putFromLoad(final Object key, final Object value, final SharedSessionContractImplementor session)
+            throws CacheException {
+        try {
+            delegate.putFromLoad(key, value, nextTimestamp(), null);
+        } catch (OperationTimeoutException e) {
+            Logger.getLogger(HazelcastStorageAccessImpl.class).finest(e);
+        }
+    }
+
     @Override
     public void release() {
         // no-op
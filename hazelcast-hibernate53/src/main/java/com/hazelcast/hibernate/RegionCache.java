@@ -55,5 +55,15 @@ public interface RegionCache extends Region, ExtendedStatisticsSupport {
 
     boolean put(final Object key, final Object value, final long txTimestamp, final Object version);
 
+    /**
+     * Puts a value loaded from the database. Soft locks and updated values are written through
+     * {@link #put(Object, Object, long, Object)} instead, so unlike those, this put may be skipped.
+     *
+     * @return whether the value was put
+     */
+    default boolean putFromLoad(final Object key, final Object value, final long txTimestamp, final Object version) {
+        return put(key, value, txTimestamp, version);
+    }
+
     void unlockItem(final Object key, final SoftLock lock);
 }
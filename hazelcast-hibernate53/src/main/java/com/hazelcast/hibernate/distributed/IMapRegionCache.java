@@ -16,15 +16,24 @@
 
 package com.hazelcast.hibernate.distributed;
 
-import com.hazelcast.core.EntryView;
+import com.hazelcast.core.ExecutionCallback;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.IMap;
+import com.hazelcast.hibernate.BulkReadRegionCache;
+import com.hazelcast.hibernate.CacheEnvironment;
 import com.hazelcast.hibernate.RegionCache;
 import com.hazelcast.hibernate.serialization.Expirable;
 import com.hazelcast.hibernate.serialization.Value;
+import com.hazelcast.logging.Logger;
 import org.hibernate.cache.spi.RegionFactory;
 import org.hibernate.cache.spi.access.SoftLock;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
 /**
  * A {@link RegionCache} implementation based on the underlying IMap
  * <p/>
@@ -37,19 +46,55 @@ import org.hibernate.cache.spi.access.SoftLock;
  *     <li>An entry is unlocked if it reaches the configured lock timeout</li>
  * </ul>
  * These requirements are incompatible with IMap locks
+ * <p/>
+ * When created with a positive async put window, see {@link CacheEnvironment#ASYNC_PUT_FROM_LOAD_WINDOW}, values
+ * loaded from the database are put without waiting for the put to complete. At most that many puts are in flight,
+ * further loaded values are dropped until earlier puts complete. Soft locks and updated values are always put
+ * synchronously through {@link #put}, as dropping or reordering them would let stale values be read. Read-write
+ * regions write loaded values through {@link #put} as well, so the window only applies to read-only and
+ * nonstrict read-write regions.
  */
-public class IMapRegionCache implements RegionCache {
+public class IMapRegionCache implements RegionCache, BulkReadRegionCache {
 
     private final IMap<Object, Expirable> map;
     private final String name;
     private final RegionFactory regionFactory;
+    private final ContentionStatistics contentionStatistics = new ContentionStatistics();
+    private final Semaphore asyncPutPermits;
+    private final int statisticsRefreshInterval;
+    private final ClusterMapStatistics clusterStatistics;
+    private final ExecutionCallback<Void> asyncPutCallback = new ExecutionCallback<Void>() {
+        @Override
+        public void onResponse(final Void response) {
+            asyncPutPermits.release();
+        }
+
+        @Override
+        public void onFailure(final Throwable t) {
+            asyncPutPermits.release();
+            Logger.getLogger(IMapRegionCache.class).finest(t);
+        }
+    };
 
     public IMapRegionCache(final RegionFactory regionFactory, final String name,
                            final HazelcastInstance hazelcastInstance) {
+        this(regionFactory, name, hazelcastInstance, 0, 0);
+    }
+
+    /**
+     * @param asyncPutWindow            the maximum number of puts in flight, or {@code 0} to wait for each put
+     * @param statisticsRefreshInterval the time in milliseconds statistics collected from the members are kept for
+     */
+    public IMapRegionCache(final RegionFactory regionFactory, final String name,
+                           final HazelcastInstance hazelcastInstance, final int asyncPutWindow,
+                           final int statisticsRefreshInterval) {
         this.name = name;
         this.regionFactory = regionFactory;
 
         this.map = hazelcastInstance.getMap(this.name);
+        asyncPutPermits = asyncPutWindow > 0 ? new Semaphore(asyncPutWindow) : null;
+        this.statisticsRefreshInterval = statisticsRefreshInterval;
+        clusterStatistics = new ClusterMapStatistics(hazelcastInstance, name, statisticsRefreshInterval);
     }
 
     @Override
@@ -78,9 +123,25 @@ public class IMapRegionCache implements RegionCache {
         return entry == null ? null : entry.getValue(txTimestamp);
     }
 
+    @Override
+    public Map<Object, Object> getAll(final Collection<?> keys, final long txTimestamp) {
+        // IMap.getAll groups the keys by their owner, so this takes one call per member rather than one per key
+        final Map<Object, Expirable> entries = map.getAll(new HashSet<Object>(keys));
+        final Map<Object, Object> result = new HashMap<Object, Object>(entries.size());
+        for (final Map.Entry<Object, Expirable> entry : entries.entrySet()) {
+            final Object value = entry.getValue() == null ? null : entry.getValue().getValue(txTimestamp);
+            if (value != null) {
+                result.put(entry.getKey(), value);
+            }
+        }
+        return result;
+    }
+
     @Override
     public long getElementCountInMemory() {
-        return map.size();
+        // Counting exactly visits every partition, so it is left to the collected statistics if they may be stale
+        final long count = statisticsRefreshInterval > 0 ? clusterStatistics.getOwnedEntryCount() : -1;
+        return count >= 0 ? count : map.size();
     }
 
     @Override
@@ -95,23 +156,41 @@ public class IMapRegionCache implements RegionCache {
 
     @Override
     public long getSizeInMemory() {
-        long size = 0;
-        for (final Object key : map.keySet()) {
-            final EntryView entry = map.getEntryView(key);
-            if (entry != null) {
-                size += entry.getCost();
-            }
-        }
-        return size;
+        return clusterStatistics.getOwnedEntryMemoryCost();
     }
 
     @Override
     public boolean put(final Object key, final Object value, final long txTimestamp, final Object version) {
+        map.put(key, new Value(version, txTimestamp, value));
+        return true;
+    }
+
+    @Override
+    public boolean putFromLoad(final Object key, final Object value, final long txTimestamp, final Object version) {
+        if (asyncPutPermits == null) {
+            return put(key, value, txTimestamp, version);
+        }
         final Value newValue = new Value(version, txTimestamp, value);
-        map.put(key, newValue);
+        if (!asyncPutPermits.tryAcquire()) {
+            contentionStatistics.drop();
+            return false;
+        }
+        try {
+            map.setAsync(key, newValue).andThen(asyncPutCallback);
+        } catch (RuntimeException e) {
+            asyncPutPermits.release();
+            throw e;
+        }
         return true;
     }
 
+    /**
+     * @return statistics about the asynchronous puts dropped by this region
+     */
+    public ContentionStatistics getContentionStatistics() {
+        return contentionStatistics;
+    }
+
     @Override
     public void unlockItem(final Object key, final SoftLock lock) {
         // no-op
@@ -16,6 +16,7 @@
 
 package com.hazelcast.hibernate.serialization;
 
+import com.hazelcast.hibernate.region.EntityNames;
 import com.hazelcast.internal.serialization.impl.SerializationConstants;
 import com.hazelcast.nio.ObjectDataInput;
 import com.hazelcast.nio.ObjectDataOutput;
@@ -27,9 +28,11 @@ import java.io.Serializable;
 
 /**
  * A {@code CacheEntry} serializer compatible with the SPI interface as updated for Hibernate 5.3. For reference
- * entries the {@code CacheEntry} is serialized directly to avoid relying on too many Hibernate implementation
- * details. Entity entries (the most common type) are serialized by accessing the fields using the interface's
- * methods. Note that the {@code areLazyPropertiesUnfetched()} method was removed in 5.1.
+ * entries the cached entity is written by the serializer registered for its type, see
+ * {@link DetachedReferenceCacheEntry}. Entity entries (the most common type) are serialized by accessing the fields
+ * using the interface's methods, with their disassembled state written in columns by {@link DisassembledState} and
+ * their entity name written by {@link EntityNames}. Note that the {@code areLazyPropertiesUnfetched()} method was
+ * removed in 5.1.
  */
 class Hibernate53CacheEntrySerializer implements StreamSerializer<CacheEntry> {
     @Override
@@ -64,10 +67,8 @@ class Hibernate53CacheEntrySerializer implements StreamSerializer<CacheEntry> {
         try {
             out.writeBoolean(object.isReferenceEntry());
             if (object.isReferenceEntry()) {
-                // Reference entries are not disassembled. Instead, to be serialized, they rely entirely on
-                // the entity itself being Serializable. This is not a common thing (Hibernate is currently
-                // very restrictive about what can be cached by reference), so it may not be worth dealing
-                // with at all. This is just a naive implementation relying on the entity's serialization.
+                // Reference entries are not disassembled. Instead, the entity itself is written through whichever
+                // Hazelcast serializer is registered for its type, see DetachedReferenceCacheEntry.
                 writeReference(out, object);
             } else {
                 writeDisassembled(out, object);
@@ -81,20 +82,16 @@ class Hibernate53CacheEntrySerializer implements StreamSerializer<CacheEntry> {
     private static CacheEntry readDisassembled(final ObjectDataInput in)
             throws IOException {
 
-        final int length = in.readInt();
-        final Serializable[] disassembledState = new Serializable[length];
-        for (int i = 0; i < length; i++) {
-            disassembledState[i] = in.readObject();
-        }
+        final Serializable[] disassembledState = DisassembledState.read(in);
 
-        final String subclass = in.readUTF();
+        final String subclass = EntityNames.read(in);
         final Object version = in.readObject();
 
         return new CacheEntryImpl(disassembledState, subclass, version);
     }
 
     private static CacheEntry readReference(final ObjectDataInput in) throws IOException {
-        return ((CacheEntryWrapper) in.readObject()).entry;
+        return DetachedReferenceCacheEntry.read(in);
     }
 
     private static IOException rethrow(final Exception e)
@@ -110,37 +107,16 @@ class Hibernate53CacheEntrySerializer implements StreamSerializer<CacheEntry> {
     private static void writeDisassembled(final ObjectDataOutput out, final CacheEntry object)
             throws IOException {
 
-        final Serializable[] disassembledState = object.getDisassembledState();
-        out.writeInt(disassembledState.length);
-        for (final Serializable state : disassembledState) {
-            out.writeObject(state);
-        }
+        DisassembledState.write(out, object.getDisassembledState());
 
-        out.writeUTF(object.getSubclass());
+        EntityNames.write(out, object.getSubclass());
         out.writeObject(object.getVersion());
     }
 
     private static void writeReference(final ObjectDataOutput out, final CacheEntry object)
             throws IOException {
 
-        out.writeObject(new CacheEntryWrapper(object));
+        DetachedReferenceCacheEntry.write(out, object);
     }
 
-    /**
-     * Wraps a CacheEntry so that serializing it will not recursively call back into this class.
-     * <p/>
-     * {@code CacheEntry} extends {@code Serializable}, so the entry could theoretically just be written with
-     * {@code ObjectDataOutput.writeObject(Object)}. However, doing so would cause the {@code SerializationService}
-     * to look up the serializer and route the entry right back here again, forming an infinite loop. This wrapper
-     * type, which has no explicit mapping, should fall back on the {@code ObjectSerializer} and be serialized by
-     * a standard {@code ObjectOutputStream}.
-     */
-    private static final class CacheEntryWrapper implements Serializable {
-
-        private final CacheEntry entry;
-
-        private CacheEntryWrapper(final CacheEntry entry) {
-            this.entry = entry;
-        }
-    }
 }
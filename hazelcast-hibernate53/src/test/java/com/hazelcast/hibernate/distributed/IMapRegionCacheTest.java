@@ -0,0 +1,89 @@
+package com.hazelcast.hibernate.distributed;
+
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.ICompletableFuture;
+import com.hazelcast.core.IMap;
+import com.hazelcast.hibernate.serialization.Expirable;
+import com.hazelcast.hibernate.serialization.ExpiryMarker;
+import com.hazelcast.hibernate.serialization.Value;
+import com.hazelcast.test.HazelcastSerialClassRunner;
+import com.hazelcast.test.annotation.QuickTest;
+import org.hibernate.cache.spi.RegionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(HazelcastSerialClassRunner.class)
+@Category(QuickTest.class)
+@SuppressWarnings("unchecked")
+public class IMapRegionCacheTest {
+
+    private final HazelcastInstance instance = mock(HazelcastInstance.class);
+    private final IMap<Object, Expirable> map = mock(IMap.class);
+    private final ICompletableFuture<Void> future = mock(ICompletableFuture.class);
+
+    @Before
+    public void setUp() {
+        when(instance.getMap("region")).thenReturn((IMap) map);
+        when(map.setAsync(any(), any(Expirable.class))).thenReturn(future);
+    }
+
+    @Test
+    public void testLoadedValuesBeyondWindowAreDropped() {
+        IMapRegionCache cache = new IMapRegionCache(mock(RegionFactory.class), "region", instance, 1, 0);
+
+        assertTrue(cache.putFromLoad("key1", "value", 100L, null));
+        assertFalse(cache.putFromLoad("key2", "value", 100L, null));
+        assertEquals(1, cache.getContentionStatistics().getDroppedPuts());
+
+        ArgumentCaptor<ExecutionCallback> captor = ArgumentCaptor.forClass(ExecutionCallback.class);
+        verify(future).andThen(captor.capture());
+        captor.getValue().onResponse(null);
+        assertTrue(cache.putFromLoad("key2", "value", 100L, null));
+    }
+
+    @Test
+    public void testWritesAreNotDroppedWhileWindowIsSaturated() {
+        IMapRegionCache cache = new IMapRegionCache(mock(RegionFactory.class), "region", instance, 1, 0);
+        assertTrue(cache.putFromLoad("key1", "value", 100L, null));
+
+        Object lock = new Object();
+        assertTrue(cache.put("key2", lock, 200L, null));
+        assertTrue(cache.put("key3", "updated", 300L, null));
+
+        ArgumentCaptor<Value> captor = ArgumentCaptor.forClass(Value.class);
+        verify(map).put(eq("key2"), captor.capture());
+        assertSame(lock, captor.getValue().getValue());
+        verify(map).put(eq("key3"), any(Value.class));
+        verify(map, never()).setAsync(eq("key2"), any(Expirable.class));
+        verify(map, never()).setAsync(eq("key3"), any(Expirable.class));
+        assertEquals(0, cache.getContentionStatistics().getDroppedPuts());
+    }
+
+    @Test
+    public void testGetAllReadsAllKeysAtOnce() {
+        Map<Object, Expirable> entries = new HashMap<Object, Expirable>();
+        entries.put("key1", new Value(1, 50L, "value1"));
+        entries.put("key2", new ExpiryMarker(1, 1000L, "marker"));
+        when(map.getAll(anySet())).thenReturn(entries);
+        IMapRegionCache cache = new IMapRegionCache(mock(RegionFactory.class), "region", instance);
+
+        Map<Object, Object> values = cache.getAll(Arrays.asList("key1", "key2", "key3"), 100L);
+
+        assertEquals(Collections.singletonMap("key1", "value1"), values);
+        verify(map).getAll(new HashSet<Object>(Arrays.asList("key1", "key2", "key3")));
+        verify(map, never()).get(any());
+    }
+}
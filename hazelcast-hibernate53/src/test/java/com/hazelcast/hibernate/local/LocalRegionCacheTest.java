@@ -134,8 +134,24 @@ public class LocalRegionCacheTest {
         verify(topic).addMessageListener(isNotNull(MessageListener.class));
     }
 
+    @Test
+    public void testInvalidationsAreFlushedWhenTransactionCompletes() {
+        ITopic<Object> topic = mock(ITopic.class);
+        HazelcastInstance instance = mock(HazelcastInstance.class);
+        when(instance.getConfig()).thenReturn(mock(Config.class));
+        when(instance.getTopic(eq(CACHE_NAME))).thenReturn(topic);
+        LocalRegionCache cache = new LocalRegionCache(regionFactory, CACHE_NAME, instance, null, true);
+        cache.enableInvalidationBatching();
+
+        cache.evictData("key1");
+        verify(topic, never()).publish(any());
+
+        cache.unlockItem("key2", null);
+        verify(topic).publish(isA(InvalidationBatch.class));
+    }
+
     @SuppressWarnings("unused")
     public static void runCleanup(LocalRegionCache cache) {
-        cache.cleanup();
+        cache.cleanup(Integer.MAX_VALUE);
     }
 }
\ No newline at end of file